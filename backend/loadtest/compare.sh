@@ -0,0 +1,24 @@
+#!/usr/bin/env bash
+# Runs read-mix.js against the platform-thread and virtual-thread modes back
+# to back and keeps each k6 summary under loadtest/results/.
+# Needs Postgres from application.properties, k6 on PATH and a built jar.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/habittracker-*.jar | head -n 1)
+mkdir -p loadtest/results
+
+run_mode() {
+  local mode=$1 profile=$2
+  java -jar "$JAR" ${profile:+--spring.profiles.active=$profile} --app.ratelimit.enabled=false \
+    > "loadtest/results/$mode-server.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" RETURN
+  until curl -s -o /dev/null http://localhost:8080/actuator/health; do sleep 1; done
+  k6 run --summary-export "loadtest/results/$mode.json" loadtest/read-mix.js | tee "loadtest/results/$mode.txt"
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+}
+
+run_mode platform ""
+run_mode virtual virtual
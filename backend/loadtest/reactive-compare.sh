@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Runs reactive-reads.js against the JPA list endpoints and then their R2DBC
+# twins on one server started with the reactive path enabled, and keeps each
+# k6 summary under loadtest/results/. Both paths get the same connection
+# budget (POOL, default 20) so the comparison is threads versus no threads.
+# Needs Postgres from application.properties, k6 on PATH and a built jar.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/habittracker-*.jar | head -n 1)
+POOL=${POOL:-20}
+mkdir -p loadtest/results
+
+java -jar "$JAR" --app.ratelimit.enabled=false --app.reactive-reads.enabled=true \
+  --app.reactive-reads.pool-size="$POOL" --spring.datasource.hikari.maximum-pool-size="$POOL" \
+  --spring.jpa.show-sql=false > loadtest/results/reactive-server.log 2>&1 &
+pid=$!
+trap "kill $pid 2>/dev/null || true" EXIT
+until curl -s -o /dev/null http://localhost:8080/actuator/health; do sleep 1; done
+
+for run in blocking:/api reactive:/api/reactive; do
+  name=${run%%:*} prefix=${run#*:}
+  # k6 exits non-zero when the threshold aborts the run, which is the expected outcome
+  k6 run -e PREFIX="$prefix" --summary-export "loadtest/results/reads-$name.json" loadtest/reactive-reads.js \
+    | tee "loadtest/results/reads-$name.txt" || true
+done
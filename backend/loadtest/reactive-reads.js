@@ -0,0 +1,61 @@
+// Finds how many concurrent readers one read path sustains before its p99
+// crosses a fixed budget. Virtual users ramp up step by step with no think
+// time; the run aborts as soon as the p99 of the last window exceeds P99_MS,
+// and the vus value at abort is the answer.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e PREFIX=/api/reactive backend/loadtest/reactive-reads.js
+//   k6 run -e BASE_URL=http://localhost:8080 -e PREFIX=/api backend/loadtest/reactive-reads.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE = __ENV.BASE_URL || 'http://localhost:8080';
+const PREFIX = __ENV.PREFIX || '/api';
+const USERS = parseInt(__ENV.USERS || '200', 10);
+const P99_MS = parseInt(__ENV.P99_MS || '250', 10);
+const STEP = parseInt(__ENV.STEP || '100', 10);
+const MAX_VUS = parseInt(__ENV.MAX_VUS || '4000', 10);
+
+const stages = [];
+for (let vus = STEP; vus <= MAX_VUS; vus += STEP) {
+  stages.push({ duration: '10s', target: vus });
+  stages.push({ duration: '20s', target: vus });
+}
+
+export const options = {
+  scenarios: {
+    ramp: { executor: 'ramping-vus', startVUs: 0, stages, gracefulRampDown: '0s' },
+  },
+  thresholds: {
+    [`http_req_duration{path:reads}`]: [
+      { threshold: `p(99)<${P99_MS}`, abortOnFail: true, delayAbortEval: '20s' },
+    ],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const tokens = [];
+  for (let i = 0; i < USERS; i++) {
+    const body = JSON.stringify({ email: `load${i}@example.test`, password: 'load-test-pw', name: `Load ${i}` });
+    const params = { headers: { 'Content-Type': 'application/json' } };
+    let res = http.post(`${BASE}/api/auth/login`, body, params);
+    if (res.status !== 200) {
+      res = http.post(`${BASE}/api/auth/signup`, body, params);
+    }
+    tokens.push(res.json('token'));
+  }
+  return { tokens };
+}
+
+const READS = ['/tasks', '/challenges', '/penalties'];
+
+export default function (data) {
+  const token = data.tokens[Math.floor(Math.random() * data.tokens.length)];
+  const path = READS[Math.floor(Math.random() * READS.length)];
+  // no If-None-Match: every request has to reach the database
+  const res = http.get(`${BASE}${PREFIX}${path}`, {
+    headers: { Authorization: `Bearer ${token}` },
+    tags: { path: 'reads' },
+  });
+  check(res, { 'read ok': (r) => r.status === 200 });
+}
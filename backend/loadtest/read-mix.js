@@ -0,0 +1,57 @@
+// Read-heavy mix matching what the web client does on load and after each
+// action: dashboard, the four list endpoints, and an occasional check-in.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e USERS=200 backend/loadtest/read-mix.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = parseInt(__ENV.USERS || '200', 10);
+
+export const options = {
+  scenarios: {
+    steady: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '500', 10),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const tokens = [];
+  for (let i = 0; i < USERS; i++) {
+    const body = JSON.stringify({ email: `load${i}@example.test`, password: 'load-test-pw', name: `Load ${i}` });
+    const params = { headers: { 'Content-Type': 'application/json' } };
+    let res = http.post(`${BASE}/api/auth/login`, body, params);
+    if (res.status !== 200) {
+      res = http.post(`${BASE}/api/auth/signup`, body, params);
+    }
+    const token = res.json('token');
+    const auth = { headers: { Authorization: `Bearer ${token}`, 'Content-Type': 'application/json' } };
+    const created = http.post(`${BASE}/api/tasks`,
+      JSON.stringify({ title: 'load task', period: 'daily', startDate: '2024-01-01' }), auth);
+    tokens.push({ token, taskId: created.json('task.id') });
+  }
+  return { tokens };
+}
+
+const READS = ['/api/dashboard', '/api/tasks', '/api/challenges', '/api/friends', '/api/penalties'];
+
+export default function (data) {
+  const u = data.tokens[Math.floor(Math.random() * data.tokens.length)];
+  const auth = { headers: { Authorization: `Bearer ${u.token}`, 'Content-Type': 'application/json' } };
+  if (Math.random() < 0.05 && u.taskId) {
+    const res = http.post(`${BASE}/api/tasks/${u.taskId}/complete-for-date`,
+      JSON.stringify({ date: new Date().toISOString().slice(0, 10) }), auth);
+    check(res, { 'check-in ok': (r) => r.status === 200 || r.status === 429 });
+    return;
+  }
+  const path = READS[Math.floor(Math.random() * READS.length)];
+  const res = http.get(`${BASE}${path}`, auth);
+  check(res, { 'read ok': (r) => r.status === 200 });
+}
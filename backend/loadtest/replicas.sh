@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Runs a local primary and one streaming replica for trying out replica
+# routing. Data lives under loadtest/results/replicas/.
+#
+#   ./loadtest/replicas.sh start    # primary on 5435, replica on 5436
+#   ./loadtest/replicas.sh pause    # stop replay on the replica so it falls behind
+#   ./loadtest/replicas.sh resume
+#   ./loadtest/replicas.sh stop
+#
+# Needs initdb, pg_ctl, pg_basebackup and psql on PATH.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+DIR=loadtest/results/replicas
+PRIMARY_PORT=${PRIMARY_PORT:-5435}
+REPLICA_PORT=${REPLICA_PORT:-5436}
+
+case "${1:-}" in
+  start)
+    mkdir -p "$DIR"
+    if [ ! -d "$DIR/primary" ]; then
+      initdb -D "$DIR/primary" -U postgres --auth=trust > /dev/null
+      cat >> "$DIR/primary/postgresql.conf" <<EOF
+port = $PRIMARY_PORT
+listen_addresses = 'localhost'
+unix_socket_directories = ''
+wal_level = replica
+max_wal_senders = 5
+EOF
+      echo "host replication postgres 127.0.0.1/32 trust" >> "$DIR/primary/pg_hba.conf"
+      pg_ctl -D "$DIR/primary" -l "$DIR/primary.log" -w start
+      psql -h localhost -p "$PRIMARY_PORT" -U postgres -c "create database habittracker"
+      # -R writes standby.signal and primary_conninfo, so the copy starts as a streaming standby
+      pg_basebackup -h localhost -p "$PRIMARY_PORT" -U postgres -D "$DIR/replica" -R -X stream
+      sed -i.bak "s/^port = $PRIMARY_PORT/port = $REPLICA_PORT/" "$DIR/replica/postgresql.conf"
+    else
+      pg_ctl -D "$DIR/primary" -l "$DIR/primary.log" -w start
+    fi
+    pg_ctl -D "$DIR/replica" -l "$DIR/replica.log" -w start
+    echo "--spring.datasource.url=jdbc:postgresql://localhost:$PRIMARY_PORT/habittracker" \
+      "--app.replicas.urls=jdbc:postgresql://localhost:$REPLICA_PORT/habittracker"
+    ;;
+  pause)
+    psql -h localhost -p "$REPLICA_PORT" -U postgres -c "select pg_wal_replay_pause()"
+    ;;
+  resume)
+    psql -h localhost -p "$REPLICA_PORT" -U postgres -c "select pg_wal_replay_resume()"
+    ;;
+  stop)
+    pg_ctl -D "$DIR/replica" -m fast stop || true
+    pg_ctl -D "$DIR/primary" -m fast stop || true
+    ;;
+  *)
+    echo "usage: $0 start|pause|resume|stop" >&2
+    exit 1
+    ;;
+esac
@@ -0,0 +1,59 @@
+package com.ajayprem.habittracker.config;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * Connection pool for the reactive read path. It points at the same database
+ * as the JPA datasource and is only created when app.reactive-reads.enabled is
+ * set; Boot's own R2DBC auto-configuration is excluded so it cannot replace
+ * the JPA transaction manager.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class ReactiveReadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadConfig.class);
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveReadPool(
+            @Value("${app.reactive-reads.url:}") String url,
+            @Value("${spring.datasource.url}") String jdbcUrl,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.reactive-reads.pool-size:20}") int poolSize,
+            @Value("${app.reactive-reads.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        String r2dbcUrl = url.isEmpty() ? jdbcUrl.replaceFirst("^jdbc:", "r2dbc:") : url;
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionPoolConfiguration config = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-reads")
+                .initialSize(Math.min(poolSize, 4))
+                .maxSize(poolSize)
+                .maxAcquireTime(Duration.ofMillis(acquireTimeoutMs))
+                .maxIdleTime(Duration.ofMinutes(10))
+                .validationQuery("select 1")
+                .build();
+        log.info("reactiveReadPool: url={} maxSize={}", r2dbcUrl, poolSize);
+        return new ConnectionPool(config);
+    }
+
+    @Bean
+    public DatabaseClient reactiveReadClient(ConnectionPool reactiveReadPool) {
+        return DatabaseClient.create(reactiveReadPool);
+    }
+}
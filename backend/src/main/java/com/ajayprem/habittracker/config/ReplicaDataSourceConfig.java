@@ -0,0 +1,96 @@
+package com.ajayprem.habittracker.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.ajayprem.habittracker.service.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read replicas for @Transactional(readOnly = true) work, active only when
+ * app.replicas.urls lists at least one replica. Without it Boot's single
+ * datasource is used and everything runs on the primary as before.
+ *
+ * The primary pool is built from spring.datasource.* exactly as Boot would
+ * build it and also runs the Flyway migrations. The application gets a lazy
+ * proxy over the {@link ReplicaRoutingDataSource}. The invalidation listener
+ * opens its own connection from spring.datasource.url, so it always LISTENs on
+ * the primary.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.replicas.urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSourceConfig.class);
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            ReadYourWrites readYourWrites,
+            MeterRegistry meterRegistry,
+            DataSourceProperties properties,
+            @Value("${app.replicas.urls}") List<String> urls,
+            @Value("${app.replicas.username:}") String username,
+            @Value("${app.replicas.password:}") String password,
+            @Value("${app.replicas.pool-size:10}") int poolSize,
+            @Value("${app.replicas.max-lag-ms:1000}") long maxLagMs,
+            @Value("${app.replicas.connection-timeout-ms:2000}") long connectionTimeoutMs) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName(name);
+            ds.setJdbcUrl(url.trim());
+            ds.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            ds.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+            ds.setDriverClassName(properties.determineDriverClassName());
+            ds.setMaximumPoolSize(poolSize);
+            ds.setReadOnly(true);
+            // a replica that is down must neither fail startup nor hold up the lag check for long
+            ds.setInitializationFailTimeout(-1);
+            ds.setConnectionTimeout(connectionTimeoutMs);
+            ds.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, ds, (int) Math.max(1, connectionTimeoutMs / 1000)));
+            log.info("replicaRoutingDataSource: {} url={} maxPoolSize={}", name, url.trim(), poolSize);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites,
+                maxLagMs);
+        routing.registerMetrics(meterRegistry);
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
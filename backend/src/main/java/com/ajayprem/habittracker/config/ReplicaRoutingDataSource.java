@@ -0,0 +1,172 @@
+package com.ajayprem.habittracker.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ajayprem.habittracker.service.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the
+ * primary.
+ *
+ * A read-only transaction still goes to the primary when the user it runs for
+ * wrote within the read-your-writes window, or when no replica is within the
+ * allowed lag. Replicas are taken round robin among those that qualify. The
+ * lookup happens when the transaction first needs a connection, which is why
+ * this sits behind a LazyConnectionDataSourceProxy: by then the transaction's
+ * read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    /*
+     * Milliseconds since the last replayed transaction, 0 when everything
+     * received has been replayed, or -1 when no WAL receiver is streaming: a
+     * replica cut off from the primary has replayed all it received and would
+     * otherwise report no lag while falling further behind. Without
+     * pg_read_all_stats the status column is null, but the row still exists
+     * only while the receiver process runs.
+     */
+    private static final String LAG_SQL = """
+            select case when not pg_is_in_recovery() then 0
+                        when not exists (select 1 from pg_stat_wal_receiver
+                                         where coalesce(status, 'streaming') = 'streaming') then -1
+                        when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   end""";
+
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private Counter toReplica;
+    private Counter toPrimary;
+    private Counter pinned;
+    private Counter lagging;
+
+    static final class Replica {
+        final String name;
+        final HikariDataSource dataSource;
+        final JdbcTemplate jdbc;
+        // -1 until the first successful check, after a failed one and while not streaming, so reads stay on the primary
+        volatile long lagMs = -1;
+
+        Replica(String name, HikariDataSource dataSource, int checkTimeoutSeconds) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.jdbc.setQueryTimeout(checkTimeoutSeconds);
+        }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, ReadYourWrites readYourWrites,
+            long maxLagMs) {
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.maxLagMs = maxLagMs;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica r : replicas) {
+            targets.put(r.name, r.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    void registerMetrics(MeterRegistry registry) {
+        toReplica = Counter.builder("datasource.routing").tag("target", "replica").tag("reason", "read-only")
+                .description("Transactions routed by the replica router").register(registry);
+        toPrimary = Counter.builder("datasource.routing").tag("target", "primary").tag("reason", "read-write")
+                .description("Transactions routed by the replica router").register(registry);
+        pinned = Counter.builder("datasource.routing").tag("target", "primary").tag("reason", "recent-write")
+                .description("Transactions routed by the replica router").register(registry);
+        lagging = Counter.builder("datasource.routing").tag("target", "primary").tag("reason", "replica-lag")
+                .description("Transactions routed by the replica router").register(registry);
+        for (Replica r : replicas) {
+            Gauge.builder("datasource.replica.lag", r, x -> x.lagMs)
+                    .tag("replica", r.name)
+                    .description("Replay lag of the replica in milliseconds, -1 when unreachable or not streaming")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            increment(toPrimary);
+            return PRIMARY;
+        }
+        if (readYourWrites.currentReaderMustUsePrimary()) {
+            increment(pinned);
+            return PRIMARY;
+        }
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            long lag = r.lagMs;
+            if (lag >= 0 && lag <= maxLagMs) {
+                increment(toReplica);
+                return r.name;
+            }
+        }
+        increment(lagging);
+        return PRIMARY;
+    }
+
+    /** Measure every replica's lag. A replica that fails the check is skipped until it passes again. */
+    @Scheduled(fixedDelayString = "${app.replicas.lag-check-ms:1000}")
+    public void checkLag() {
+        for (Replica r : replicas) {
+            long previous = r.lagMs;
+            try {
+                Double lag = r.jdbc.queryForObject(LAG_SQL, Double.class);
+                r.lagMs = lag == null ? 0 : Math.round(lag);
+            } catch (RuntimeException e) {
+                r.lagMs = -1;
+                if (previous >= 0) {
+                    log.warn("checkLag: replica {} unreachable: {}", r.name, e.toString());
+                }
+                continue;
+            }
+            boolean wasUsable = previous >= 0 && previous <= maxLagMs;
+            boolean usable = r.lagMs >= 0 && r.lagMs <= maxLagMs;
+            if (wasUsable != usable) {
+                log.info("checkLag: replica {} lagMs={} usable={}", r.name, r.lagMs, usable);
+            }
+        }
+    }
+
+    public void close() {
+        for (Replica r : replicas) {
+            r.dataSource.close();
+        }
+    }
+
+    private static void increment(Counter c) {
+        if (c != null) {
+            c.increment();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ajayprem.habittracker.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.dto.DateRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads the small {@code *Request} records in the dto package through an
+ * ObjectReader built once per record type, instead of the reader the default
+ * Jackson converter resolves on every request. Read-only; responses still go
+ * through the default converters.
+ */
+@Component
+public class RequestRecordConverter extends AbstractHttpMessageConverter<Record> {
+
+    private static final String DTO_PACKAGE = DateRequest.class.getPackageName();
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public RequestRecordConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz.isRecord() && clazz.getSimpleName().endsWith("Request")
+                && clazz.getPackageName().equals(DTO_PACKAGE);
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Record readInternal(Class<? extends Record> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return readerFor(clazz).readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Record body, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("request records are read-only");
+    }
+
+    ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ajayprem.habittracker.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.ajayprem.habittracker.dto.StreamedList;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes {@link StreamedList} bodies straight to the response stream. The
+ * envelope is emitted by hand and the list goes through an ObjectWriter built
+ * once per element type, so no intermediate map or per-request writer is
+ * created. Spring Boot registers converter beans ahead of its defaults.
+ */
+@Component
+public class StreamedListConverter extends AbstractHttpMessageConverter<StreamedList<?>> {
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public StreamedListConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamedList.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamedList<?> readInternal(Class<? extends StreamedList<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamedList is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(StreamedList<?> body, HttpOutputMessage outputMessage) throws IOException {
+        write(body, StreamUtils.nonClosing(outputMessage.getBody()));
+    }
+
+    /** Serialize the body exactly as it would go on the wire, e.g. to cache the bytes. */
+    public byte[] toBytes(StreamedList<?> body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        write(body, out);
+        return out.toByteArray();
+    }
+
+    private void write(StreamedList<?> body, OutputStream out) throws IOException {
+        ObjectWriter writer = writerFor(body.type());
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeFieldName(body.field());
+            writer.writeValue(gen, body.items());
+            gen.writeEndObject();
+        }
+    }
+
+    ObjectWriter writerFor(Class<?> type) {
+        // typed as List<type> so the element serializer is resolved once, not per element
+        return writers.computeIfAbsent(type, t -> objectMapper
+                .writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, t))
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+    }
+}
@@ -1,8 +1,9 @@
 package com.ajayprem.habittracker.controller;
 
-import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,8 +14,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ajayprem.habittracker.dto.AuthResponses;
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.LoginRequest;
+import com.ajayprem.habittracker.dto.LogoutAllResponse;
+import com.ajayprem.habittracker.dto.ProfileResponse;
+import com.ajayprem.habittracker.dto.SignupRequest;
+import com.ajayprem.habittracker.dto.SuccessResponse;
 import com.ajayprem.habittracker.dto.UserProfileDto;
+import com.ajayprem.habittracker.security.HashingCapacityException;
 import com.ajayprem.habittracker.service.AuthService;
+import com.ajayprem.habittracker.service.AuthTokenService;
+import com.ajayprem.habittracker.util.CurrentUser;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -25,24 +35,39 @@ public class AuthController {
     @Autowired
     private AuthService svc;
 
+    @Autowired
+    private AuthTokenService tokenService;
+
     @PostMapping("/signup")
-    public ResponseEntity<?> signup(@RequestBody Map<String,Object> body) {
+    public ResponseEntity<?> signup(@RequestBody SignupRequest body) {
         log.info("AuthController: signup request body={}", body);
-        String email = (String) body.get("email");
-        String password = (String) body.get("password");
-        String name = (String) body.get("name");
-        AuthResponses r = svc.signup(email, password, name);
-        if (r == null) return ResponseEntity.badRequest().body(Map.of("error","user exists"));
+        String email = body.email();
+        String password = body.password();
+        String name = body.name();
+        AuthResponses r;
+        try {
+            r = svc.signup(email, password, name);
+        } catch (HashingCapacityException e) {
+            log.warn("AuthController: signup rejected, {}", e.getMessage());
+            return busy();
+        }
+        if (r == null) return ResponseEntity.badRequest().body(new ErrorResponse("user exists"));
         return ResponseEntity.ok(r);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String,Object> body) {
-        log.info("AuthController: login request body keys={}", body == null ? null : body.keySet());
-        String email = (String) body.get("email");
-        String password = (String) body.get("password");
-        AuthResponses r = svc.login(email, password);
-        if (r == null) return ResponseEntity.status(401).body(Map.of("error","invalid credentials"));
+    public ResponseEntity<?> login(@RequestBody LoginRequest body) {
+        log.info("AuthController: login request body={}", body);
+        String email = body.email();
+        String password = body.password();
+        AuthResponses r;
+        try {
+            r = svc.login(email, password);
+        } catch (HashingCapacityException e) {
+            log.warn("AuthController: login rejected, {}", e.getMessage());
+            return busy();
+        }
+        if (r == null) return ResponseEntity.status(401).body(new ErrorResponse("invalid credentials"));
         log.info("AuthController: login succeeded for email={}", email);
         return ResponseEntity.ok(r);
     }
@@ -51,7 +76,31 @@ public class AuthController {
     public ResponseEntity<?> profile() {
         log.info("AuthController: profile request");
         UserProfileDto p = svc.profile();
-        if (p == null) return ResponseEntity.status(401).body(Map.of("error","unauthorized"));
-        return ResponseEntity.ok(Map.of("user", p));
+        if (p == null) return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        return ResponseEntity.ok(new ProfileResponse(p));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout() {
+        Long userId = CurrentUser.id();
+        if (userId == null) return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        log.info("AuthController: logout userId={}", userId);
+        boolean ok = tokenService.revoke(userId, CurrentUser.tokenId());
+        return ResponseEntity.ok(SuccessResponse.of(ok));
+    }
+
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll() {
+        Long userId = CurrentUser.id();
+        if (userId == null) return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        log.info("AuthController: logoutAll userId={}", userId);
+        int revoked = tokenService.revokeAll(userId);
+        return ResponseEntity.ok(new LogoutAllResponse(true, revoked));
+    }
+
+    private static ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse("server busy, retry shortly"));
     }
 }
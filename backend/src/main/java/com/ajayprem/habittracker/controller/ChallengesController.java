@@ -1,21 +1,30 @@
 package com.ajayprem.habittracker.controller;
 
-import java.util.List;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.ChallengePenaltyRequest;
+import com.ajayprem.habittracker.dto.ChallengeResponse;
+import com.ajayprem.habittracker.dto.DateRequest;
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.PenaltyResult;
+import com.ajayprem.habittracker.dto.SuccessResponse;
 import com.ajayprem.habittracker.service.ChallengeService;
+import com.ajayprem.habittracker.service.ReadModelCache;
+import com.ajayprem.habittracker.service.ResourceVersions;
 import com.ajayprem.habittracker.util.CurrentUser;
 
 @RestController
@@ -27,14 +36,25 @@ public class ChallengesController {
     @Autowired
     private ChallengeService challengeService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ReadModelCache readModelCache;
+
     @GetMapping("")
-    public ResponseEntity<?> getChallenges() {
+    public ResponseEntity<?> getChallenges(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: getChallenges userId={}", userId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        List<ChallengeDto> list = challengeService.getChallenges(userId);
-        return ResponseEntity.ok(Map.of("challenges", list));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String etag = resourceVersions.etag(userId, ResourceVersions.Resource.CHALLENGES);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ResourceVersions.REVALIDATE).build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag)
+                .cacheControl(ResourceVersions.REVALIDATE).body(readModelCache.challenges(userId));
     }
 
     @PostMapping("")
@@ -43,9 +63,9 @@ public class ChallengesController {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: create userId={} title={}", userId, body == null ? null : body.getTitle());
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         ChallengeDto created = challengeService.createChallenge(userId, body);
-        return ResponseEntity.ok(Map.of("challenge", created));
+        return ResponseEntity.ok(new ChallengeResponse(created));
     }
 
     @PostMapping("/{challengeId}/accept")
@@ -54,9 +74,9 @@ public class ChallengesController {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: accept userId={} challengeId={}", userId, challengeId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         boolean ok = challengeService.acceptChallenge(userId, challengeId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
      @PostMapping("/{challengeId}/reject")
@@ -65,51 +85,51 @@ public class ChallengesController {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: accept userId={} challengeId={}", userId, challengeId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         boolean ok = challengeService.rejectChallenge(userId, challengeId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @PostMapping("/{challengeId}/complete")
     public ResponseEntity<?> complete(
             @PathVariable String challengeId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody DateRequest body) {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: complete userId={} challengeId={}", userId, challengeId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        String date = body.get("date");
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String date = body.date();
         log.info("ChallengesController: completeForDate userId={} challengeId={} date={}", userId, challengeId, date);
         final boolean ok = challengeService.completeChallenge(userId, challengeId, date);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
     
     @PostMapping("/{challengeId}/uncomplete")
     public ResponseEntity<?> uncomplete(
             @PathVariable String challengeId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody DateRequest body) {
         final Long userId = CurrentUser.id();
         log.info("ChallengesController: uncomplete userId={} challengeId={}", userId, challengeId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        String date = body.get("date");
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String date = body.date();
         log.info("ChallengesController: completeForDate userId={} challengeId={} date={}", userId, challengeId, date);
         boolean ok = challengeService.uncompleteChallenge(userId, challengeId, date);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @PostMapping("/{challengeId}/penalty")
     public ResponseEntity<?> penalty(
             @PathVariable String challengeId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody ChallengePenaltyRequest body) {
         final Long userId = CurrentUser.id();
-        String failedUserId = body.get("failedUserId");
+        String failedUserId = body.failedUserId();
         log.info("ChallengesController: penalty userId={} challengeId={} failedUserId={}", userId, challengeId, failedUserId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        Map<String, Object> resp = challengeService.applyChallengePenalty(userId, challengeId, failedUserId);
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        PenaltyResult resp = challengeService.applyChallengePenalty(userId, challengeId, failedUserId);
         if (resp == null)
-            return ResponseEntity.badRequest().body(Map.of("success", false));
+            return ResponseEntity.badRequest().body(SuccessResponse.FAILED);
         return ResponseEntity.ok(resp);
     }
 }
@@ -0,0 +1,54 @@
+package com.ajayprem.habittracker.controller;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ajayprem.habittracker.dto.DashboardDto;
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.service.DashboardService;
+import com.ajayprem.habittracker.service.ResourceVersions;
+import com.ajayprem.habittracker.service.ResourceVersions.Resource;
+import com.ajayprem.habittracker.util.CurrentUser;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @GetMapping("")
+    public ResponseEntity<?> getDashboard(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String etag = resourceVersions.etag(userId, Resource.TASKS, Resource.CHALLENGES, Resource.FRIENDS,
+                Resource.PENALTIES);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ResourceVersions.REVALIDATE)
+                    .build();
+        }
+        log.info("DashboardController: getDashboard userId={}", userId);
+        DashboardDto d = dashboardService.load(userId);
+        if (d == null) {
+            log.warn("DashboardController: getDashboard failed for userId={}", userId);
+            return ResponseEntity.status(503).body(new ErrorResponse("dashboard unavailable"));
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(ResourceVersions.REVALIDATE).body(d);
+    }
+}
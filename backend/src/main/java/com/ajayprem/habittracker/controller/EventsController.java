@@ -0,0 +1,36 @@
+package com.ajayprem.habittracker.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ajayprem.habittracker.service.EventBus;
+import com.ajayprem.habittracker.util.CurrentUser;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventsController {
+
+    private static final Logger log = LoggerFactory.getLogger(EventsController.class);
+
+    @Autowired
+    private EventBus eventBus;
+
+    // the emitter's return type has to be declared exactly for MVC to stream it,
+    // so the unauthorized case is an exception rather than a ResponseEntity body
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        log.info("EventsController: stream userId={}", userId);
+        return eventBus.subscribe(userId);
+    }
+}
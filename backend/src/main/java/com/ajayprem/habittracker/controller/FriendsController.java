@@ -1,22 +1,34 @@
 package com.ajayprem.habittracker.controller;
 
 import java.util.List;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.FriendIdRequest;
+import com.ajayprem.habittracker.dto.FriendSuggestionDto;
+import com.ajayprem.habittracker.dto.FromUserRequest;
+import com.ajayprem.habittracker.dto.IncomingFriendRequest;
+import com.ajayprem.habittracker.dto.SentFriendRequest;
+import com.ajayprem.habittracker.dto.StreamedList;
+import com.ajayprem.habittracker.dto.SuccessResponse;
 import com.ajayprem.habittracker.dto.UserProfileDto;
-import com.ajayprem.habittracker.model.FriendRequest;
+import com.ajayprem.habittracker.dto.UserRef;
+import com.ajayprem.habittracker.repository.FriendRequestRow;
 import com.ajayprem.habittracker.service.FriendService;
+import com.ajayprem.habittracker.service.ResourceVersions;
 import com.ajayprem.habittracker.util.CurrentUser;
 
 // Todo: dont send friend request to exisitng friends or pending requests
@@ -30,109 +42,120 @@ public class FriendsController {
     @Autowired
     private FriendService friendService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping("/search")
-    public ResponseEntity<?> search(@RequestParam("search") String search) {
+    public ResponseEntity<?> search(@RequestParam("search") String search,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
         log.info("FriendsController: search user={}", search);
-        List<UserProfileDto> users = friendService.searchByEmail(search);
-        return ResponseEntity.ok(Map.of("users", users));
+        List<UserProfileDto> users = friendService.searchByEmail(search, Math.min(Math.max(limit, 1), 100));
+        return ResponseEntity.ok(StreamedList.of("users", users, UserProfileDto.class));
     }
 
     @PostMapping("/request")
     public ResponseEntity<?> requestFriend(
-            @RequestBody Map<String, String> body) {
+            @RequestBody FriendIdRequest body) {
         Long fromUser = CurrentUser.id();
-        Long friendId =  Long.valueOf(body.get("friendId"));
+        Long friendId = body.friendId();
         if (fromUser == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: requestFriend fromUser={} friendId={}", fromUser, friendId);
         boolean ok = friendService.sendFriendRequest(fromUser, friendId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @GetMapping("/requests")
     public ResponseEntity<?> getRequests() {
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: getRequests userId={}", userId);
-        List<FriendRequest> list = friendService.getFriendRequests(userId);
-        List<Map<String, Object>> out = list.stream().map(fr -> {
-            var from = fr.getFromUser();
-            Map<String, Object> fromUser = Map.of(
-                    "id", String.valueOf(from.getId()),
-                    "name", from.getName(),
-                    "email", from.getEmail());
-            return Map.of(
-                    "id", String.valueOf(fr.getId()),
-                    "fromUserId", String.valueOf(fr.getFromUser().getId()),
-                    "toUserId", String.valueOf(fr.getToUser().getId()),
-                    "status", fr.getStatus(),
-                    "createdAt", fr.getCreatedAt(),
-                    "fromUser", fromUser);
+        List<FriendRequestRow> list = friendService.getFriendRequests(userId);
+        List<IncomingFriendRequest> out = list.stream().map(fr -> {
+            UserRef fromUser = new UserRef(String.valueOf(fr.otherUserId()), fr.otherName(), fr.otherEmail());
+            return new IncomingFriendRequest(
+                    String.valueOf(fr.key()),
+                    String.valueOf(fr.fromUserId()),
+                    String.valueOf(fr.toUserId()),
+                    fr.status(),
+                    fr.createdAt(),
+                    fromUser);
         }).toList();
-        return ResponseEntity.ok(Map.of("requests", out));
+        return ResponseEntity.ok(StreamedList.of("requests", out, IncomingFriendRequest.class));
     }
 
     @PostMapping("/accept")
     public ResponseEntity<?> accept(
-            @RequestBody Map<String, String> body) {
+            @RequestBody FromUserRequest body) {
         Long userId =  CurrentUser.id();
-        Long fromUserId = Long.valueOf(body.get("fromUserId"));
+        Long fromUserId = body.fromUserId();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: accept userId={} fromUserId={}", userId, fromUserId);
         boolean ok = friendService.acceptFriendRequest(userId, fromUserId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @PostMapping("/delete")
     public ResponseEntity<?> deleteRequest(
-            @RequestBody Map<String, String> body) {
+            @RequestBody FromUserRequest body) {
         Long userId = CurrentUser.id();
-        Long fromUserId = Long.valueOf(body.get("fromUserId"));
+        Long fromUserId = body.fromUserId();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: deleteRequest userId={} fromUserId={}", userId, fromUserId);
         boolean ok = friendService.deleteFriendRequest(userId, fromUserId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @GetMapping("")
-    public ResponseEntity<?> listFriends() {
+    public ResponseEntity<?> listFriends(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String etag = resourceVersions.etag(userId, ResourceVersions.Resource.FRIENDS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ResourceVersions.REVALIDATE).build();
+        }
         log.info("FriendsController: listFriends userId={}", userId);
         List<UserProfileDto> list = friendService.listFriends(userId);
-        return ResponseEntity.ok(Map.of("friends", list));
+        return ResponseEntity.ok().eTag(etag).cacheControl(ResourceVersions.REVALIDATE).body(StreamedList.of("friends", list, UserProfileDto.class));
+    }
+
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> suggestions(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        log.info("FriendsController: suggestions userId={}", userId);
+        List<FriendSuggestionDto> list = friendService.suggestFriends(userId, Math.min(Math.max(limit, 1), 50));
+        return ResponseEntity.ok(StreamedList.of("suggestions", list, FriendSuggestionDto.class));
     }
 
     @GetMapping("/sent-requests")
     public ResponseEntity<?> getSentRequests() {
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: getSentRequests userId={}", userId);
-        List<FriendRequest> list = friendService.getSentFriendRequests(userId);
-        List<Map<String, String>> out = list.stream().map(fr -> {
-            var to = fr.getToUser();
-            return Map.of(
-                    "id", String.valueOf(fr.getId()),
-                    "name", to.getName(),
-                    "email", to.getEmail());
-        }).toList();
-        return ResponseEntity.ok(Map.of("requests", out));
+        List<FriendRequestRow> list = friendService.getSentFriendRequests(userId);
+        List<SentFriendRequest> out = list.stream()
+                .map(fr -> new SentFriendRequest(String.valueOf(fr.key()), fr.otherName(), fr.otherEmail()))
+                .toList();
+        return ResponseEntity.ok(StreamedList.of("requests", out, SentFriendRequest.class));
     }
 
     @PostMapping("/remove")
     public ResponseEntity<?> removeFriend(
-            @RequestBody Map<String, String> body) {
+            @RequestBody FriendIdRequest body) {
         Long userId = CurrentUser.id();
-        Long friendId = Long.valueOf(body.get("friendId"));
+        Long friendId = body.friendId();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("FriendsController: delete friend userId={} fromUserId={}", userId, friendId);
         boolean ok = friendService.removeFriend(userId, friendId);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 }
@@ -1,16 +1,21 @@
 package com.ajayprem.habittracker.controller;
 
 import java.util.List;
-import java.util.Map;
 
+import com.ajayprem.habittracker.dto.ErrorResponse;
 import com.ajayprem.habittracker.dto.PenaltySummaryDto;
+import com.ajayprem.habittracker.dto.PenaltySummaryResponse;
+import com.ajayprem.habittracker.dto.SuccessResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.ajayprem.habittracker.service.PenaltyService;
+import com.ajayprem.habittracker.service.ResourceVersions;
 import com.ajayprem.habittracker.util.CurrentUser;
 
 @RestController
@@ -22,14 +27,22 @@ public class PenaltiesController {
     @Autowired
     private PenaltyService svc;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping("")
-    public ResponseEntity<?> getPenalties() {
+    public ResponseEntity<?> getPenalties(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Long userId = CurrentUser.id();
         log.info("PenaltiesController: getPenalties userId={}", userId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String etag = resourceVersions.etag(userId, ResourceVersions.Resource.PENALTIES);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ResourceVersions.REVALIDATE).build();
+        }
         PenaltySummaryDto list = svc.getPenaltySummary(userId);
-        return ResponseEntity.ok(Map.of("penaltySummary", list));
+        return ResponseEntity.ok().eTag(etag).cacheControl(ResourceVersions.REVALIDATE).body(new PenaltySummaryResponse(list));
     }
 
     @DeleteMapping("/{friendId}") 
@@ -38,9 +51,9 @@ public class PenaltiesController {
         Long userId = CurrentUser.id();
         log.info("PenaltiesController: deletePenaltiesForTask userId={} taskId={}", userId, friendId);
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         boolean ok = svc.removePenalties(userId, Long.valueOf(friendId));
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
 }
@@ -0,0 +1,92 @@
+package com.ajayprem.habittracker.controller;
+
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.PenaltySummaryResponse;
+import com.ajayprem.habittracker.dto.StreamedList;
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.service.ReactiveReadService;
+import com.ajayprem.habittracker.service.ResourceVersions;
+import com.ajayprem.habittracker.service.ResourceVersions.Resource;
+import com.ajayprem.habittracker.util.CurrentUser;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC-backed twins of GET /api/tasks, /api/challenges and /api/penalties.
+ * Same bodies and ETags as the MVC handlers; the request thread is released
+ * while the queries run and the response is written on an async dispatch.
+ * Only the routes listed in app.reactive-reads.routes are served.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class ReactiveReadController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadController.class);
+
+    @Autowired
+    private ReactiveReadService reactiveReadService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("#{'${app.reactive-reads.routes:tasks,challenges,penalties}'.split(',')}")
+    private Set<String> routes;
+
+    @GetMapping("/tasks")
+    public Mono<ResponseEntity<?>> getTasks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serve("tasks", Resource.TASKS, ifNoneMatch, uid -> reactiveReadService.getTasks(uid)
+                .map(list -> StreamedList.of("tasks", list, TaskDto.class)));
+    }
+
+    @GetMapping("/challenges")
+    public Mono<ResponseEntity<?>> getChallenges(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serve("challenges", Resource.CHALLENGES, ifNoneMatch, uid -> reactiveReadService.getChallenges(uid)
+                .map(list -> StreamedList.of("challenges", list, ChallengeDto.class)));
+    }
+
+    @GetMapping("/penalties")
+    public Mono<ResponseEntity<?>> getPenalties(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serve("penalties", Resource.PENALTIES, ifNoneMatch, uid -> reactiveReadService.getPenaltySummary(uid)
+                .map(PenaltySummaryResponse::new));
+    }
+
+    private Mono<ResponseEntity<?>> serve(String route, Resource resource, String ifNoneMatch,
+            Function<Long, Mono<?>> read) {
+        if (!routes.contains(route)) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        // the user and the version are read on the request thread, before anything is subscribed
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            return Mono.just(ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED));
+        String etag = resourceVersions.etag(userId, resource);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                    .cacheControl(ResourceVersions.REVALIDATE).build());
+        }
+        log.debug("ReactiveReadController: {} userId={}", route, userId);
+        return read.apply(userId).map(body -> ResponseEntity.ok().eTag(etag)
+                .cacheControl(ResourceVersions.REVALIDATE).body(body));
+    }
+}
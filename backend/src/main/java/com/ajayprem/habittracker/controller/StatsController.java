@@ -0,0 +1,42 @@
+package com.ajayprem.habittracker.controller;
+
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.HeatmapResponse;
+import com.ajayprem.habittracker.dto.SuccessResponse;
+import com.ajayprem.habittracker.service.StatsService;
+import com.ajayprem.habittracker.util.CurrentUser;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsController.class);
+
+    @Autowired
+    private StatsService statsService;
+
+    @GetMapping("/heatmap")
+    public ResponseEntity<?> getHeatmap(
+            @RequestParam(required = false) Integer year) {
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        int y = year == null ? LocalDate.now().getYear() : year;
+        log.info("StatsController: getHeatmap userId={} year={}", userId, y);
+        byte[] days = statsService.getHeatmap(userId, y);
+        if (days == null)
+            return ResponseEntity.badRequest().body(SuccessResponse.FAILED);
+        return ResponseEntity.ok(new HeatmapResponse(y, days));
+    }
+}
@@ -0,0 +1,33 @@
+package com.ajayprem.habittracker.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.service.SyncService;
+import com.ajayprem.habittracker.util.CurrentUser;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncController.class);
+
+    @Autowired
+    private SyncService syncService;
+
+    @GetMapping("")
+    public ResponseEntity<?> sync(@RequestParam(value = "since", required = false) String since) {
+        Long userId = CurrentUser.id();
+        if (userId == null)
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        log.debug("SyncController: sync userId={} since={}", userId, since);
+        return ResponseEntity.ok(syncService.sync(userId, since));
+    }
+}
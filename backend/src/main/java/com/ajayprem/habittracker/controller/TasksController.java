@@ -1,21 +1,31 @@
 package com.ajayprem.habittracker.controller;
 
-import java.util.List;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping; // Todo
 import org.springframework.web.bind.annotation.RequestBody; // Todo
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController; //
 
+import com.ajayprem.habittracker.dto.DateRequest;
+import com.ajayprem.habittracker.dto.ErrorResponse;
+import com.ajayprem.habittracker.dto.PenaltyResult;
+import com.ajayprem.habittracker.dto.SuccessResponse;
 import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.dto.TaskResponse;
+import com.ajayprem.habittracker.dto.TaskStats;
+import com.ajayprem.habittracker.dto.TaskStatsResponse;
+import com.ajayprem.habittracker.service.ReadModelCache;
+import com.ajayprem.habittracker.service.ResourceVersions;
 import com.ajayprem.habittracker.service.TaskService;
 import com.ajayprem.habittracker.util.CurrentUser; 
 
@@ -28,41 +38,54 @@ public class TasksController {
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ReadModelCache readModelCache;
+
     @PostMapping("/{taskId}/complete-for-date")
     public ResponseEntity<?> completeForDate(
             @PathVariable String taskId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody DateRequest body) {
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        String date = body.get("date");
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String date = body.date();
         log.info("TasksController: completeForDate userId={} taskId={} date={}", userId, taskId, date);
         boolean ok = taskService.completeTaskForDate(userId, taskId, date);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @PostMapping("/{taskId}/uncomplete-for-date")
     public ResponseEntity<?> uncompleteForDate(
             @PathVariable String taskId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody DateRequest body) {
 
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
-        String date = body.get("date");
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        String date = body.date();
         log.info("TasksController: uncompleteForDate userId={} taskId={} date={}", userId, taskId, date);
         boolean ok = taskService.uncompleteTaskForDate(userId, taskId, date);
-        return ResponseEntity.ok(Map.of("success", ok));
+        return ResponseEntity.ok(SuccessResponse.of(ok));
     }
 
     @GetMapping("")
-    public ResponseEntity<?> getTasks() {
+    public ResponseEntity<?> getTasks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
+        // read the version before the data so a concurrent write can only make the tag older
+        String etag = resourceVersions.etag(userId, ResourceVersions.Resource.TASKS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            log.debug("TasksController: getTasks userId={} not modified", userId);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ResourceVersions.REVALIDATE).build();
+        }
         log.info("TasksController: getTasks userId={}", userId);
-        List<TaskDto> list = taskService.getTasks(userId);
-        return ResponseEntity.ok(Map.of("tasks", list));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag)
+                .cacheControl(ResourceVersions.REVALIDATE).body(readModelCache.tasks(userId));
     }
 
     @PostMapping("")
@@ -71,14 +94,14 @@ public class TasksController {
 
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("TasksController: createTask userId={} title={}", userId, body == null ? null : body.getTitle());
         TaskDto created = taskService.createTask(userId, body);
         if (created == null) {
             log.warn("TasksController: createTask failed for userId={}", userId);
-            return ResponseEntity.badRequest().body(Map.of("error", "invalid task data"));
+            return ResponseEntity.badRequest().body(new ErrorResponse("invalid task data"));
         }
-        return ResponseEntity.ok(Map.of("task", created));
+        return ResponseEntity.ok(new TaskResponse(created));
     }
 
     // @PostMapping("")
@@ -87,12 +110,12 @@ public class TasksController {
 
     //         Long userId = CurrentUser.id();
     //     if (userId == null)
-    //         return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+    //         return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
     //     log.info("TasksController: createTask userId={} title={}", userId, body == null ? null : body.getTitle());
     //     TaskDto created = taskService.createTask(userId, body);
     //     if (created == null) {
     //         log.warn("TasksController: createTask failed for userId={}", userId);
-    //         return ResponseEntity.badRequest().body(Map.of("error", "invalid task data"));
+    //         return ResponseEntity.badRequest().body(new ErrorResponse("invalid task data"));
     //     }
     //     return ResponseEntity.ok(Map.of("task", created));
     // }
@@ -103,11 +126,11 @@ public class TasksController {
 
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("TasksController: penalty userId={} taskId={}", userId, taskId);
-        Map<String, Object> resp = taskService.applyTaskPenalty(userId, taskId);
+        PenaltyResult resp = taskService.applyTaskPenalty(userId, taskId);
         if (resp == null)
-            return ResponseEntity.badRequest().body(Map.of("success", false));
+            return ResponseEntity.badRequest().body(SuccessResponse.FAILED);
         return ResponseEntity.ok(resp);
     }
 
@@ -117,10 +140,12 @@ public class TasksController {
 
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("TasksController: getStats userId={} taskId={}", userId, taskId);
-        Map<String, Object> stats = taskService.getTaskStats(userId, taskId);
-        return ResponseEntity.ok(Map.of("stats", stats));
+        TaskStats stats = taskService.getTaskStats(userId, taskId);
+        if (stats == null)
+            return ResponseEntity.status(404).body(new ErrorResponse("task not found"));
+        return ResponseEntity.ok(new TaskStatsResponse(stats));
     }
 
     @DeleteMapping("/{taskId}")
@@ -129,12 +154,12 @@ public class TasksController {
 
         Long userId = CurrentUser.id();
         if (userId == null)
-            return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+            return ResponseEntity.status(401).body(ErrorResponse.UNAUTHORIZED);
         log.info("TasksController: deleteTask userId={} taskId={}", userId, taskId);
         boolean ok = taskService.deleteTask(userId, taskId);
         if (!ok) {
-            return ResponseEntity.badRequest().body(Map.of("success", false));
+            return ResponseEntity.badRequest().body(SuccessResponse.FAILED);
         }
-        return ResponseEntity.ok(Map.of("success", true));
+        return ResponseEntity.ok(SuccessResponse.OK);
     }
 }
@@ -0,0 +1,4 @@
+package com.ajayprem.habittracker.dto;
+
+public record ChallengeStats(int totalCompletions, int currentStreak, int longestStreak, double penaltyAmount) {
+}
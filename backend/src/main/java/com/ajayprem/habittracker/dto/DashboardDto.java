@@ -0,0 +1,14 @@
+package com.ajayprem.habittracker.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class DashboardDto {
+    private UserProfileDto user;
+    private List<TaskDto> tasks;
+    private List<ChallengeDto> challenges;
+    private List<UserProfileDto> friends;
+    private PenaltySummaryDto penaltySummary;
+}
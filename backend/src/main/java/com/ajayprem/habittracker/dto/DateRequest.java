@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.dto;
+
+/** Body of the complete/uncomplete endpoints; date is yyyy-MM-dd. */
+public record DateRequest(String date) {
+}
@@ -0,0 +1,6 @@
+package com.ajayprem.habittracker.dto;
+
+public record ErrorResponse(String error) {
+
+    public static final ErrorResponse UNAUTHORIZED = new ErrorResponse("unauthorized");
+}
@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.dto;
+
+/** Body of /api/friends/request and /api/friends/remove. */
+public record FriendIdRequest(Long friendId) {
+}
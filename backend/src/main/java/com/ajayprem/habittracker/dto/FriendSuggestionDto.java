@@ -0,0 +1,11 @@
+package com.ajayprem.habittracker.dto;
+
+import lombok.Data;
+
+@Data
+public class FriendSuggestionDto {
+    private Long id;
+    private String name;
+    private String email;
+    private int mutualFriends;
+}
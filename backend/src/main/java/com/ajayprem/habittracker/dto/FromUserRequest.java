@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.dto;
+
+/** Body of /api/friends/accept and /api/friends/delete. */
+public record FromUserRequest(Long fromUserId) {
+}
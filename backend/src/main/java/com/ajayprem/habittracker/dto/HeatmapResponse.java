@@ -0,0 +1,10 @@
+package com.ajayprem.habittracker.dto;
+
+/**
+ * A year of daily activity. days holds 732 bytes, sent base64-encoded, two per
+ * day from January 1st: the completions, then the tasks and challenges due,
+ * each an unsigned count capped at 255. The last pair is unused outside leap
+ * years.
+ */
+public record HeatmapResponse(int year, byte[] days) {
+}
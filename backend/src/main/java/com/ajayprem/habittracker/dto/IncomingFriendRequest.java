@@ -0,0 +1,10 @@
+package com.ajayprem.habittracker.dto;
+
+public record IncomingFriendRequest(
+        String id,
+        String fromUserId,
+        String toUserId,
+        String status,
+        String createdAt,
+        UserRef fromUser) {
+}
@@ -0,0 +1,9 @@
+package com.ajayprem.habittracker.dto;
+
+public record LoginRequest(String email, String password) {
+
+    @Override
+    public String toString() {
+        return "LoginRequest[email=" + email + "]";
+    }
+}
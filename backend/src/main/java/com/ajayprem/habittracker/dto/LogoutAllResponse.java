@@ -0,0 +1,4 @@
+package com.ajayprem.habittracker.dto;
+
+public record LogoutAllResponse(boolean success, int revoked) {
+}
@@ -0,0 +1,22 @@
+package com.ajayprem.habittracker.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Outcome of applying a task or challenge penalty by hand. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PenaltyResult(boolean success, String reason, List<Long> penaltyIds, String penaltyId) {
+
+    public static PenaltyResult notConfigured() {
+        return new PenaltyResult(false, "no_penalty_configured", null, null);
+    }
+
+    public static PenaltyResult created(List<Long> penaltyIds) {
+        return new PenaltyResult(!penaltyIds.isEmpty(), null, penaltyIds, null);
+    }
+
+    public static PenaltyResult created(Long penaltyId) {
+        return new PenaltyResult(true, null, null, String.valueOf(penaltyId));
+    }
+}
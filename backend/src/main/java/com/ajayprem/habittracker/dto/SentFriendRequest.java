@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.dto;
+
+/** A request the user sent; name and email are the recipient's. */
+public record SentFriendRequest(String id, String name, String email) {
+}
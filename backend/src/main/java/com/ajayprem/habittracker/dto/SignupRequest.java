@@ -0,0 +1,9 @@
+package com.ajayprem.habittracker.dto;
+
+public record SignupRequest(String email, String password, String name) {
+
+    @Override
+    public String toString() {
+        return "SignupRequest[email=" + email + ", name=" + name + "]";
+    }
+}
@@ -0,0 +1,14 @@
+package com.ajayprem.habittracker.dto;
+
+import java.util.List;
+
+/**
+ * A response of the form {@code {"<field>": [ ... ]}} written element by
+ * element through a JsonGenerator instead of being built as a map first.
+ */
+public record StreamedList<T>(String field, List<T> items, Class<T> type) {
+
+    public static <T> StreamedList<T> of(String field, List<T> items, Class<T> type) {
+        return new StreamedList<>(field, items == null ? List.of() : items, type);
+    }
+}
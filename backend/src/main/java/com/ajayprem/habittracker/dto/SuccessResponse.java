@@ -0,0 +1,11 @@
+package com.ajayprem.habittracker.dto;
+
+public record SuccessResponse(boolean success) {
+
+    public static final SuccessResponse OK = new SuccessResponse(true);
+    public static final SuccessResponse FAILED = new SuccessResponse(false);
+
+    public static SuccessResponse of(boolean success) {
+        return success ? OK : FAILED;
+    }
+}
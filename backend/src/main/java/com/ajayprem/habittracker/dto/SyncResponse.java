@@ -0,0 +1,22 @@
+package com.ajayprem.habittracker.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Everything that changed for the user since the token they sent. Empty lists
+ * are left out, so an up-to-date client gets little more than the token back.
+ * When reset is true the lists are the user's full state and the client should
+ * replace what it holds; when more is true it should call again at once with
+ * the new token.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record SyncResponse(String token, boolean reset, boolean more, List<TaskDto> tasks,
+        List<ChallengeDto> challenges, List<UserProfileDto> friends, List<PenaltyDto> penalties,
+        List<Tombstone> deleted) {
+
+    /** A deleted entity; type is task, challenge, friend or penalty. */
+    public record Tombstone(String type, String id) {
+    }
+}
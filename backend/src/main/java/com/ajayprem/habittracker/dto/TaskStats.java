@@ -0,0 +1,10 @@
+package com.ajayprem.habittracker.dto;
+
+public record TaskStats(
+        int totalCompletions,
+        int currentStreak,
+        int longestStreak,
+        double completionRate,
+        int totalPenalties,
+        double penaltyAmount) {
+}
@@ -0,0 +1,18 @@
+package com.ajayprem.habittracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One push notification on the events stream. The client uses the type to
+ * decide which list to refresh; resourceId is the challenge, penalty or user
+ * the event is about.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserEvent(String type, String resourceId, Long actorId, String date) {
+
+    public static final String CHALLENGE_COMPLETED = "challenge.completed";
+    public static final String CHALLENGE_ACCEPTED = "challenge.accepted";
+    public static final String FRIEND_REQUEST = "friend.request";
+    public static final String FRIEND_ACCEPTED = "friend.accepted";
+    public static final String PENALTY_CREATED = "penalty.created";
+}
@@ -1,22 +1,42 @@
 package com.ajayprem.habittracker.model;
 
+import java.time.Instant;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+/**
+ * One issued session token. The id is the JWT id (jti) claim, not the token
+ * itself; the row is flagged when the session is revoked.
+ */
 @Data
 @Entity
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @Table(name = "auth_token")
 public class AuthToken {
     @Id
     private String token;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
+
+    private Instant expiresAt;
+
+    // V3__sessions_and_sync adds the column with this default, so rows that predate it read as not revoked
+    @Column(columnDefinition = "boolean not null default false")
+    private boolean revoked;
+
+    private Instant revokedAt;
 }
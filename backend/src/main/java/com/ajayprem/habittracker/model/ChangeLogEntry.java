@@ -0,0 +1,45 @@
+package com.ajayprem.habittracker.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One change to something a user can see, written in the same transaction as
+ * the change itself. Rows are fanned out per user so a sync is a range scan
+ * of the (user_id, id) index starting after the client's last token.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "change_log")
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 16)
+    private String resource;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    private boolean deleted;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,29 @@
+package com.ajayprem.habittracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * How many of a user's tasks and challenges were completed on a day, and how
+ * many were due. Weekly and monthly items count on the first day of their
+ * period, the date their completion keys name. Rows are written with upserts
+ * in {@code DailyRollupRepository} and read a year at a time for the heatmap.
+ */
+@Data
+@Entity
+@Table(name = "daily_rollup")
+public class DailyRollup {
+
+    @EmbeddedId
+    private DailyRollupKey id;
+
+    @Column(nullable = false)
+    private short completed;
+
+    @Column(nullable = false)
+    private short due;
+
+}
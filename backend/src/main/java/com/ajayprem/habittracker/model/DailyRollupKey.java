@@ -0,0 +1,26 @@
+package com.ajayprem.habittracker.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRollupKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "day")
+    private LocalDate day;
+
+}
@@ -2,6 +2,7 @@ package com.ajayprem.habittracker.model;
 
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
@@ -16,12 +17,12 @@ public class FriendRequest {
     @EmbeddedId
     private FriendRequestKey id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("fromUserId")
     @JoinColumn(name = "from_user_id")
     private User fromUser;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("toUserId")
     @JoinColumn(name = "to_user_id")
     private User toUser;
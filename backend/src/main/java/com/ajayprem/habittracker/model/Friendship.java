@@ -0,0 +1,23 @@
+package com.ajayprem.habittracker.model;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * One direction of a friendship. Every friendship is stored as two symmetric
+ * rows, (a, b) and (b, a), so either side can be listed by a single indexed
+ * lookup on user_id. Rows are written and removed with direct statements in
+ * {@code FriendshipRepository}; no association is mapped, so nothing is
+ * loaded to change a friendship.
+ */
+@Data
+@Entity
+@Table(name = "user_friends")
+public class Friendship {
+
+    @EmbeddedId
+    private FriendshipKey id;
+
+}
@@ -0,0 +1,25 @@
+package com.ajayprem.habittracker.model;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "friend_id")
+    private Long friendId;
+
+}
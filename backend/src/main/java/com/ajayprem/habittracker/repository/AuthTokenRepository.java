@@ -1,6 +1,12 @@
 package com.ajayprem.habittracker.repository;
 
+import java.time.Instant;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ajayprem.habittracker.model.AuthToken;
@@ -8,4 +14,24 @@ import com.ajayprem.habittracker.model.AuthToken;
 @Repository
 public interface AuthTokenRepository extends JpaRepository<AuthToken, String> {
 
+    @Query("select t.token, t.expiresAt from AuthToken t where t.revoked = true and t.expiresAt > :now")
+    List<Object[]> findRevokedUnexpired(@Param("now") Instant now);
+
+    @Query("select t.token, t.expiresAt from AuthToken t where t.revoked = true and t.revokedAt >= :since and t.expiresAt > :now")
+    List<Object[]> findRevokedSince(@Param("since") Instant since, @Param("now") Instant now);
+
+    @Query("select t.token, t.expiresAt from AuthToken t where t.user.id = :uid and t.revoked = false and t.expiresAt > :now")
+    List<Object[]> findActiveByUserId(@Param("uid") Long uid, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update AuthToken t set t.revoked = true, t.revokedAt = :now where t.token = :id and t.user.id = :uid and t.revoked = false")
+    int revoke(@Param("id") String id, @Param("uid") Long uid, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update AuthToken t set t.revoked = true, t.revokedAt = :now where t.user.id = :uid and t.revoked = false and t.expiresAt > :now")
+    int revokeAllForUser(@Param("uid") Long uid, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from AuthToken t where t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
 }
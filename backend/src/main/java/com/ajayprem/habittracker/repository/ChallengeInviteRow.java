@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.repository;
+
+/** One invited user of a challenge. */
+public record ChallengeInviteRow(Long challengeId, Long userId) {
+}
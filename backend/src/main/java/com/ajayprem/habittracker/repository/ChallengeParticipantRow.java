@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.repository;
+
+/** One participant of a challenge, with the participant's name. */
+public record ChallengeParticipantRow(Long id, Long challengeId, Long userId, String name, String status) {
+}
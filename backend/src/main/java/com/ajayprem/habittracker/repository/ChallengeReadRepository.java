@@ -0,0 +1,130 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.ajayprem.habittracker.model.Challenge;
+import com.ajayprem.habittracker.model.ChallengeParticipant;
+import com.ajayprem.habittracker.model.User;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking read of the challenges a user created or was invited to, with
+ * their participants, for the reactive read path. Each part is its own query
+ * over the same visible-challenge subselect, run concurrently and assembled
+ * into detached {@link Challenge}s.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class ChallengeReadRepository {
+
+    private static final String VISIBLE = "select c.id from challenge c where c.creator_id = :uid union "
+            + "select i.challenge_id from challenge_invited_users i where i.invited_user_id = :uid";
+
+    static final String CHALLENGES = "select id, creator_id, title, description, period, penalty_amount, "
+            + "status, created_at, next_due_date, start_date, end_date from challenge where id in (" + VISIBLE
+            + ") order by id";
+
+    static final String INVITED = "select challenge_id, invited_user_id from challenge_invited_users "
+            + "where challenge_id in (" + VISIBLE + ")";
+
+    static final String PARTICIPANTS = "select p.id, p.challenge_id, p.status, u.id as user_id, u.name "
+            + "from challenge_participant p join app_user u on u.id = p.user_id where p.challenge_id in ("
+            + VISIBLE + ") order by p.id";
+
+    static final String COMPLETED = "select d.participant_id, d.completed_date "
+            + "from challenge_participant_completed d join challenge_participant p on p.id = d.participant_id "
+            + "where p.challenge_id in (" + VISIBLE + ")";
+
+    private record Invited(Long challengeId, Long userId) {
+    }
+
+    private record Participant(Long challengeId, ChallengeParticipant participant) {
+    }
+
+    private record Completed(Long participantId, String key) {
+    }
+
+    @Autowired
+    private DatabaseClient reactiveReadClient;
+
+    public Mono<List<Challenge>> findVisibleTo(Long uid) {
+        Mono<List<Challenge>> challenges = reactiveReadClient.sql(CHALLENGES).bind("uid", uid)
+                .map(ChallengeReadRepository::challenge).all().collectList();
+        Mono<List<Invited>> invited = reactiveReadClient.sql(INVITED).bind("uid", uid)
+                .map(row -> new Invited(row.get("challenge_id", Long.class), row.get("invited_user_id", Long.class)))
+                .all().collectList();
+        Mono<List<Participant>> participants = findParticipants(uid);
+        Mono<List<Completed>> completed = reactiveReadClient.sql(COMPLETED).bind("uid", uid)
+                .map(row -> new Completed(row.get("participant_id", Long.class),
+                        row.get("completed_date", String.class)))
+                .all().collectList();
+
+        return Mono.zip(challenges, invited, participants, completed).map(t -> {
+            Map<Long, Challenge> byId = new LinkedHashMap<>();
+            for (Challenge c : t.getT1()) {
+                byId.put(c.getId(), c);
+            }
+            for (Invited i : t.getT2()) {
+                Challenge c = byId.get(i.challengeId());
+                if (c != null) {
+                    c.getInvitedUsers().add(i.userId());
+                }
+            }
+            Map<Long, ChallengeParticipant> participantsById = new LinkedHashMap<>();
+            for (Participant p : t.getT3()) {
+                Challenge c = byId.get(p.challengeId());
+                if (c != null) {
+                    p.participant().setChallenge(c);
+                    c.getParticipants().add(p.participant());
+                    participantsById.put(p.participant().getId(), p.participant());
+                }
+            }
+            for (Completed d : t.getT4()) {
+                ChallengeParticipant p = participantsById.get(d.participantId());
+                if (p != null) {
+                    p.getCompletedDates().add(d.key());
+                }
+            }
+            return new ArrayList<>(byId.values());
+        });
+    }
+
+    private Mono<List<Participant>> findParticipants(Long uid) {
+        return reactiveReadClient.sql(PARTICIPANTS).bind("uid", uid).map(row -> {
+            ChallengeParticipant p = new ChallengeParticipant();
+            p.setId(row.get("id", Long.class));
+            p.setStatus(row.get("status", String.class));
+            p.setUser(User.builder().id(row.get("user_id", Long.class)).name(row.get("name", String.class)).build());
+            return new Participant(row.get("challenge_id", Long.class), p);
+        }).all().collectList();
+    }
+
+    private static Challenge challenge(Readable row) {
+        Challenge c = new Challenge();
+        c.setId(row.get("id", Long.class));
+        c.setCreator(User.builder().id(row.get("creator_id", Long.class)).build());
+        c.setTitle(row.get("title", String.class));
+        c.setDescription(row.get("description", String.class));
+        c.setPeriod(row.get("period", String.class));
+        Double amount = row.get("penalty_amount", Double.class);
+        c.setPenaltyAmount(amount == null ? 0 : amount);
+        c.setStatus(row.get("status", String.class));
+        c.setCreatedAt(row.get("created_at", Instant.class));
+        c.setNextDueDate(row.get("next_due_date", LocalDate.class));
+        c.setStartDate(row.get("start_date", LocalDate.class));
+        c.setEndDate(row.get("end_date", LocalDate.class));
+        return c;
+    }
+}
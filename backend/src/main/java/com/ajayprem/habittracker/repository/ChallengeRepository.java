@@ -1,6 +1,12 @@
 package com.ajayprem.habittracker.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ajayprem.habittracker.model.Challenge;
@@ -8,4 +14,41 @@ import com.ajayprem.habittracker.model.Challenge;
 @Repository
 public interface ChallengeRepository extends JpaRepository<Challenge, Long> {
 
+    /** Ids of the challenges the user created or was invited to. */
+    @Query(value = "select c.id from challenge c where c.creator_id = :uid"
+            + " union select i.challenge_id from challenge_invited_users i where i.invited_user_id = :uid",
+            nativeQuery = true)
+    List<Long> findVisibleIds(@Param("uid") Long uid);
+
+    @Query("select new com.ajayprem.habittracker.repository.ChallengeRow(c.id, c.creator.id, c.title, c.description, c.period,"
+            + " c.penaltyAmount, c.status, c.createdAt, c.nextDueDate, c.startDate, c.endDate)"
+            + " from Challenge c where c.id in :ids order by c.id")
+    List<ChallengeRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.ajayprem.habittracker.repository.ChallengeParticipantRow(p.id, p.challenge.id, u.id, u.name, p.status)"
+            + " from ChallengeParticipant p join p.user u where p.challenge.id in :ids order by p.id")
+    List<ChallengeParticipantRow> findParticipantRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.ajayprem.habittracker.repository.CompletionRow(p.id, d) from ChallengeParticipant p join p.completedDates d"
+            + " where p.challenge.id in :ids")
+    List<CompletionRow> findCompletionRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.ajayprem.habittracker.repository.ChallengeInviteRow(c.id, i) from Challenge c join c.invitedUsers i"
+            + " where c.id in :ids")
+    List<ChallengeInviteRow> findInviteRowsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Distinct completion keys of each participant of the challenge from fromKey
+     * up to, not including, toKey. Keys are ISO period starts, so they compare
+     * in date order. Participants without one are left out.
+     */
+    @Query("select new com.ajayprem.habittracker.repository.CompletionCountRow(p.id, count(distinct d))"
+            + " from ChallengeParticipant p join p.completedDates d"
+            + " where p.challenge.id = :cid and d >= :fromKey and d < :toKey group by p.id")
+    List<CompletionCountRow> countCompletionsByChallengeId(@Param("cid") Long cid, @Param("fromKey") String fromKey,
+            @Param("toKey") String toKey);
+
+    /** Active challenges with a penalty whose end date is before {@code day}. */
+    @Query("select c from Challenge c where c.endDate < :day and c.penaltyAmount > 0 and lower(c.status) = 'active'")
+    List<Challenge> findEndedActiveWithPenalty(@Param("day") LocalDate day);
 }
@@ -0,0 +1,10 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/** The challenge columns a challenge list needs, without the creator or any collection. */
+public record ChallengeRow(Long id, Long creatorId, String title, String description, String period,
+        double penaltyAmount, String status, Instant createdAt, LocalDate nextDueDate, LocalDate startDate,
+        LocalDate endDate) {
+}
@@ -0,0 +1,28 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ajayprem.habittracker.model.ChangeLogEntry;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    List<ChangeLogEntry> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Limit limit);
+
+    ChangeLogEntry findFirstByUserIdAndCreatedAtLessThanEqualOrderByIdDesc(Long userId, Instant createdAt);
+
+    @Query("select min(e.id) from ChangeLogEntry e")
+    Long findMinId();
+
+    @Modifying
+    @Query("delete from ChangeLogEntry e where e.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.repository;
+
+/** How many distinct period keys a task or challenge participant completed in some range. */
+public record CompletionCountRow(Long ownerId, long completed) {
+}
@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.repository;
+
+/** One completed period key of a task or of a challenge participant. */
+public record CompletionRow(Long ownerId, String completedDate) {
+}
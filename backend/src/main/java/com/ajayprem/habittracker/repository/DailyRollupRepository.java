@@ -0,0 +1,73 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ajayprem.habittracker.model.DailyRollup;
+import com.ajayprem.habittracker.model.DailyRollupKey;
+
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, DailyRollupKey> {
+
+    /*
+     * Tasks and accepted challenge participations due on q.d: every day for
+     * daily ones, on the first day of the week or month for weekly and monthly
+     * ones, whenever the item's dates overlap that period. Each fragment is
+     * completed with a filter on the user column or a group by it.
+     */
+    String TASKS_DUE = """
+            select t.user_id from task t
+            where t.start_date <= case lower(t.period) when 'weekly' then q.d + 6
+                                      when 'monthly' then (q.d + interval '1 month')::date - 1 else q.d end
+              and (t.end_date is null or t.end_date >= q.d)
+              and case lower(t.period) when 'weekly' then extract(isodow from q.d) = 1
+                                       when 'monthly' then extract(day from q.d) = 1 else true end
+            """;
+
+    String CHALLENGES_DUE = """
+            select p.user_id from challenge_participant p join challenge c on c.id = p.challenge_id
+            where p.status = 'accepted' and c.status is distinct from 'rejected'
+              and c.start_date <= case lower(c.period) when 'weekly' then q.d + 6
+                                      when 'monthly' then (q.d + interval '1 month')::date - 1 else q.d end
+              and (c.end_date is null or c.end_date >= q.d)
+              and case lower(c.period) when 'weekly' then extract(isodow from q.d) = 1
+                                       when 'monthly' then extract(day from q.d) = 1 else true end
+            """;
+
+    @Query("select r from DailyRollup r where r.id.userId = :uid and r.id.day between :from and :to")
+    List<DailyRollup> findRange(@Param("uid") Long uid, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Add delta to the user's completions on the day, never going below zero,
+     * and recount what the user had due that day.
+     */
+    // declaring the table keeps these native statements from evicting every cache region
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "daily_rollup"))
+    @Query(value = "insert into daily_rollup (user_id, day, completed, due)"
+            + " select :uid, q.d, greatest(:delta, 0), (select count(*) from ("
+            + TASKS_DUE + " and t.user_id = :uid union all " + CHALLENGES_DUE + " and p.user_id = :uid) x)"
+            + " from (select cast(:day as date) as d) q"
+            + " on conflict (user_id, day) do update set completed = greatest(daily_rollup.completed + :delta, 0),"
+            + " due = excluded.due", nativeQuery = true)
+    int addCompleted(@Param("uid") Long uid, @Param("day") LocalDate day, @Param("delta") int delta);
+
+    /** Recount every user's due items on the day. Reads all tasks and participations, for the scheduled refresh. */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "daily_rollup"))
+    @Query(value = "insert into daily_rollup (user_id, day, due)"
+            + " select x.user_id, q.d, count(*) from (select cast(:day as date) as d) q cross join lateral ("
+            + TASKS_DUE + " union all " + CHALLENGES_DUE + ") x where x.user_id is not null group by x.user_id, q.d"
+            + " on conflict (user_id, day) do update set due = excluded.due", nativeQuery = true)
+    int refreshDue(@Param("day") LocalDate day);
+}
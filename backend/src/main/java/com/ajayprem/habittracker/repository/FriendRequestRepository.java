@@ -3,6 +3,8 @@ package com.ajayprem.habittracker.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ajayprem.habittracker.model.FriendRequest;
@@ -10,7 +12,17 @@ import com.ajayprem.habittracker.model.FriendRequestKey;
 
 @Repository
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, FriendRequestKey> {
-    List<FriendRequest> findByToUserId(Long toUserId);
+    @Query("select new com.ajayprem.habittracker.repository.FriendRequestRow(fr.id.fromUserId, fr.id.toUserId, fr.status, fr.createdAt,"
+            + " u.id, u.name, u.email) from FriendRequest fr join fr.fromUser u where fr.id.toUserId = :uid")
+    List<FriendRequestRow> findIncomingRows(@Param("uid") Long uid);
 
-    List<FriendRequest> findByFromUserId(Long fromUserId);
+    @Query("select new com.ajayprem.habittracker.repository.FriendRequestRow(fr.id.fromUserId, fr.id.toUserId, fr.status, fr.createdAt,"
+            + " u.id, u.name, u.email) from FriendRequest fr join fr.toUser u where fr.id.fromUserId = :uid")
+    List<FriendRequestRow> findSentRows(@Param("uid") Long uid);
+
+    @Query("select fr.id.toUserId from FriendRequest fr where fr.id.fromUserId = :uid")
+    List<Long> findToUserIdsByFromUserId(@Param("uid") Long uid);
+
+    @Query("select fr.id.fromUserId from FriendRequest fr where fr.id.toUserId = :uid")
+    List<Long> findFromUserIdsByToUserId(@Param("uid") Long uid);
 }
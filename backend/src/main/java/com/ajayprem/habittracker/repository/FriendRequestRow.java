@@ -0,0 +1,18 @@
+package com.ajayprem.habittracker.repository;
+
+import com.ajayprem.habittracker.model.FriendRequestKey;
+
+/**
+ * A friend request with the other party's id, name and email: the sender for
+ * an incoming request, the recipient for a sent one.
+ */
+public record FriendRequestRow(Long fromUserId, Long toUserId, String status, String createdAt, Long otherUserId,
+        String otherName, String otherEmail) {
+
+    public FriendRequestKey key() {
+        FriendRequestKey k = new FriendRequestKey();
+        k.setFromUserId(fromUserId);
+        k.setToUserId(toUserId);
+        return k;
+    }
+}
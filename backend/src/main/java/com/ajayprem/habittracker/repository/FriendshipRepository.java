@@ -0,0 +1,43 @@
+package com.ajayprem.habittracker.repository;
+
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ajayprem.habittracker.model.Friendship;
+import com.ajayprem.habittracker.model.FriendshipKey;
+
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface FriendshipRepository extends JpaRepository<Friendship, FriendshipKey> {
+
+    // declaring the table keeps this native insert from evicting every cache region
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_friends"))
+    @Query(value = "insert into user_friends (user_id, friend_id) values (:a, :b), (:b, :a) on conflict do nothing", nativeQuery = true)
+    int insertEdge(@Param("a") Long a, @Param("b") Long b);
+
+    @Modifying
+    @Query("delete from Friendship f where (f.id.userId = :a and f.id.friendId = :b) or (f.id.userId = :b and f.id.friendId = :a)")
+    int deleteEdge(@Param("a") Long a, @Param("b") Long b);
+
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "friends") })
+    @Query("select f.id.friendId from Friendship f where f.id.userId = :uid")
+    List<Long> findFriendIds(@Param("uid") Long uid);
+
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "friends") })
+    @Query("select u.id as id, u.name as name, u.email as email from Friendship f join User u on u.id = f.id.friendId where f.id.userId = :uid")
+    List<UserSummary> findFriendSummaries(@Param("uid") Long uid);
+
+    @Query("select f.id.userId, f.id.friendId from Friendship f")
+    List<Object[]> findAllEdges();
+}
@@ -0,0 +1,44 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking read of the penalties a user owes or is owed, joined with both
+ * users in one query, for the reactive read path.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class PenaltyReadRepository {
+
+    static final String PENALTIES = "select p.id, p.type, p.task_id, p.amount, p.reason, p.created_at, "
+            + "p.period_key, f.id as from_id, f.name as from_name, f.email as from_email, "
+            + "t.id as to_id, t.name as to_name, t.email as to_email from penalty p "
+            + "left join app_user f on f.id = p.from_user_id left join app_user t on t.id = p.to_user_id "
+            + "where p.from_user_id = :uid or p.to_user_id = :uid";
+
+    @Autowired
+    private DatabaseClient reactiveReadClient;
+
+    public Mono<List<PenaltyRow>> findByFromUserIdOrToUserId(Long uid) {
+        return reactiveReadClient.sql(PENALTIES).bind("uid", uid)
+                .map(PenaltyReadRepository::penalty).all().collectList();
+    }
+
+    private static PenaltyRow penalty(Readable row) {
+        Double amount = row.get("amount", Double.class);
+        return new PenaltyRow(row.get("id", Long.class), row.get("type", String.class),
+                row.get("task_id", Long.class), row.get("from_id", Long.class), row.get("from_name", String.class),
+                row.get("from_email", String.class), row.get("to_id", Long.class), row.get("to_name", String.class),
+                row.get("to_email", String.class), amount == null ? 0 : amount, row.get("reason", String.class),
+                row.get("created_at", Instant.class), row.get("period_key", String.class));
+    }
+}
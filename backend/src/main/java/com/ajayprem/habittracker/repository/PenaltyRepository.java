@@ -3,13 +3,25 @@ package com.ajayprem.habittracker.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ajayprem.habittracker.model.Penalty;
 
 @Repository
 public interface PenaltyRepository extends JpaRepository<Penalty, Long> {
-    List<Penalty> findByFromUserIdOrToUserId(Long fromUserId, Long toUserId);
+    /**
+     * Penalties from or to the user, with both users' names, in one query. The
+     * users are entity joins so p.fromUser.id stays on penalty's own column; with
+     * association joins the filter ORs across the joined users, which defeats
+     * both user indexes.
+     */
+    @Query("select new com.ajayprem.habittracker.repository.PenaltyRow(p.id, p.type, p.task.id, f.id, f.name, f.email, t.id, t.name,"
+            + " t.email, p.amount, p.reason, p.createdAt, p.periodKey) from Penalty p"
+            + " left join User f on f.id = p.fromUser.id left join User t on t.id = p.toUser.id"
+            + " where p.fromUser.id = :uid or p.toUser.id = :uid")
+    List<PenaltyRow> findRowsByUserId(@Param("uid") Long uid);
 
     boolean existsByTaskIdAndPeriodKey(Long taskId, String periodKey);
 
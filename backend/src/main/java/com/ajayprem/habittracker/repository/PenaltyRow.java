@@ -0,0 +1,12 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+
+/**
+ * A penalty with the name and email of both users, everything the penalty
+ * summary shows. The user columns are null when that side is not set.
+ */
+public record PenaltyRow(Long id, String type, Long taskId, Long fromUserId, String fromUserName,
+        String fromUserEmail, Long toUserId, String toUserName, String toUserEmail, double amount, String reason,
+        Instant createdAt, String periodKey) {
+}
@@ -0,0 +1,41 @@
+package com.ajayprem.habittracker.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The resource_version table: one counter per user and list, moved in the
+ * transaction that changes the list. Plain JDBC because the upsert returns the
+ * new value, which a derived or @Modifying query cannot.
+ */
+@Repository
+public class ResourceVersionRepository {
+
+    static final String FIND = "select resource, version from resource_version where user_id = ?";
+
+    static final String INCREMENT = """
+            insert into resource_version (user_id, resource, version) values (?, ?, 1)
+            on conflict (user_id, resource) do update set version = resource_version.version + 1
+            returning version""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** The user's versions by resource tag; resources never changed are absent. */
+    public Map<String, Long> findByUserId(Long userId) {
+        Map<String, Long> out = new HashMap<>();
+        jdbcTemplate.query(FIND, (RowCallbackHandler) rs -> out.put(rs.getString(1), rs.getLong(2)), userId);
+        return out;
+    }
+
+    /** Add one to the user's version of the resource and return the new value. */
+    public long increment(Long userId, String resource) {
+        Long v = jdbcTemplate.queryForObject(INCREMENT, Long.class, userId, resource);
+        return v == null ? 0 : v;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.ajayprem.habittracker.model.Task;
+import com.ajayprem.habittracker.model.User;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking read of a user's tasks for the reactive read path. The task
+ * rows, recipients and completion keys are fetched concurrently and stitched
+ * into detached {@link Task}s, so the existing DTO mapping applies unchanged.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class TaskReadRepository {
+
+    static final String TASKS = "select id, title, description, period, penalty_amount, status, "
+            + "created_at, start_date, end_date from task where user_id = :uid order by id";
+
+    static final String RECIPIENTS = "select r.task_id, u.id, u.name from task_penalty_recipients r "
+            + "join task t on t.id = r.task_id join app_user u on u.id = r.user_id where t.user_id = :uid";
+
+    static final String COMPLETED = "select d.task_id, d.completed_date from task_completed_dates d "
+            + "join task t on t.id = d.task_id where t.user_id = :uid";
+
+    private record Recipient(Long taskId, User user) {
+    }
+
+    private record Completed(Long taskId, String key) {
+    }
+
+    @Autowired
+    private DatabaseClient reactiveReadClient;
+
+    public Mono<List<Task>> findByUserId(Long uid) {
+        User owner = User.builder().id(uid).build();
+        Mono<List<Task>> tasks = reactiveReadClient.sql(TASKS).bind("uid", uid)
+                .map(row -> task(row, owner)).all().collectList();
+        Mono<List<Recipient>> recipients = reactiveReadClient.sql(RECIPIENTS).bind("uid", uid)
+                .map(row -> new Recipient(row.get("task_id", Long.class),
+                        User.builder().id(row.get("id", Long.class)).name(row.get("name", String.class)).build()))
+                .all().collectList();
+        Mono<List<Completed>> completed = reactiveReadClient.sql(COMPLETED).bind("uid", uid)
+                .map(row -> new Completed(row.get("task_id", Long.class), row.get("completed_date", String.class)))
+                .all().collectList();
+
+        return Mono.zip(tasks, recipients, completed).map(t -> {
+            Map<Long, Task> byId = new LinkedHashMap<>();
+            for (Task task : t.getT1()) {
+                byId.put(task.getId(), task);
+            }
+            for (Recipient r : t.getT2()) {
+                Task task = byId.get(r.taskId());
+                if (task != null) {
+                    task.getPenaltyRecipients().add(r.user());
+                }
+            }
+            for (Completed c : t.getT3()) {
+                Task task = byId.get(c.taskId());
+                if (task != null) {
+                    task.getCompletedDates().add(c.key());
+                }
+            }
+            return new ArrayList<>(byId.values());
+        });
+    }
+
+    private static Task task(Readable row, User owner) {
+        Task t = new Task();
+        t.setId(row.get("id", Long.class));
+        t.setUser(owner);
+        t.setTitle(row.get("title", String.class));
+        t.setDescription(row.get("description", String.class));
+        t.setPeriod(row.get("period", String.class));
+        Double amount = row.get("penalty_amount", Double.class);
+        t.setPenaltyAmount(amount == null ? 0 : amount);
+        t.setStatus(row.get("status", String.class));
+        t.setCreatedAt(row.get("created_at", Instant.class));
+        t.setStartDate(row.get("start_date", LocalDate.class));
+        t.setEndDate(row.get("end_date", LocalDate.class));
+        return t;
+    }
+}
@@ -0,0 +1,5 @@
+package com.ajayprem.habittracker.repository;
+
+/** One penalty recipient of a task, with the recipient's name. */
+public record TaskRecipientRow(Long taskId, Long userId, String name) {
+}
@@ -1,13 +1,31 @@
 package com.ajayprem.habittracker.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ajayprem.habittracker.model.Task;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
-    List<Task> findByUserId(Long userId);
+
+    @Query("select new com.ajayprem.habittracker.repository.TaskRow(t.id, t.user.id, t.title, t.description, t.period, t.penaltyAmount,"
+            + " t.status, t.createdAt, t.startDate, t.endDate) from Task t where t.user.id = :uid order by t.id")
+    List<TaskRow> findRowsByUserId(@Param("uid") Long uid);
+
+    @Query("select new com.ajayprem.habittracker.repository.TaskRecipientRow(t.id, r.id, r.name)"
+            + " from Task t join t.penaltyRecipients r where t.user.id = :uid")
+    List<TaskRecipientRow> findRecipientRowsByUserId(@Param("uid") Long uid);
+
+    @Query("select new com.ajayprem.habittracker.repository.CompletionRow(t.id, d) from Task t join t.completedDates d where t.user.id = :uid")
+    List<CompletionRow> findCompletionRowsByUserId(@Param("uid") Long uid);
+
+    /** Tasks with a penalty that had started by {@code to} and had not ended before {@code from}. */
+    @Query("select t from Task t where t.penaltyAmount > 0 and (t.startDate is null or t.startDate <= :to)"
+            + " and (t.endDate is null or t.endDate >= :from)")
+    List<Task> findPenaltyCandidates(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
@@ -0,0 +1,9 @@
+package com.ajayprem.habittracker.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/** The task columns a task list needs, without the owner or any collection. */
+public record TaskRow(Long id, Long userId, String title, String description, String period, double penaltyAmount,
+        String status, Instant createdAt, LocalDate startDate, LocalDate endDate) {
+}
@@ -1,16 +1,30 @@
 package com.ajayprem.habittracker.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ajayprem.habittracker.model.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 	Optional<User> findByEmail(String email);
-	List<User> findByEmailContaining(String email);
-	List<User> findByNameContainingIgnoreCase(String name);
+
+	@Query("select u.id as id, u.name as name, u.email as email from User u order by u.id")
+	List<UserSummary> findAllSummaries();
+
+	@Query("select u.id as id, u.name as name, u.email as email from User u where u.id in :ids")
+	List<UserSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+	@Transactional
+	@Modifying
+	@Query("update User u set u.password = :hash where u.id = :id")
+	int updatePassword(@Param("id") Long id, @Param("hash") String hash);
 }
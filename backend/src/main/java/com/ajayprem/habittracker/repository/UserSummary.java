@@ -0,0 +1,13 @@
+package com.ajayprem.habittracker.repository;
+
+/**
+ * Lightweight projection of a user row (id, name, email) used where the full
+ * entity and its associations are not needed.
+ */
+public interface UserSummary {
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+}
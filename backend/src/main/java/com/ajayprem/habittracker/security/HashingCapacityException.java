@@ -0,0 +1,14 @@
+package com.ajayprem.habittracker.security;
+
+/**
+ * Thrown when the password-hashing executor is saturated, so the request can be
+ * rejected with 503 instead of queueing behind other logins.
+ */
+public class HashingCapacityException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HashingCapacityException(String message) {
+        super(message);
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ajayprem.habittracker.service.AuthTokenService;
 import com.ajayprem.habittracker.service.JwtService;
 
 import jakarta.servlet.FilterChain;
@@ -24,8 +25,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private AuthTokenService authTokenService;
+
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
+    private static final String EVENT_STREAM_PATH = "/api/events/stream";
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -36,21 +42,28 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         log.debug("JwtAuthFilter: Processing request {} Authorization={} ", request.getRequestURI(), authHeader);
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        String token;
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            token = authHeader.substring(7);
+        } else if (EVENT_STREAM_PATH.equals(request.getRequestURI()) && request.getParameter("access_token") != null) {
+            // browsers' EventSource cannot set headers, so the event stream also takes the token as a query param
+            token = request.getParameter("access_token");
+        } else {
             log.error("JwtAuthFilter: No Authorization header or does not start with Bearer");
             filterChain.doFilter(request, response);
             return;
         }
 
-        String token = authHeader.substring(7);
-        Long userId = jwtService.extractUserId(token);
+        JwtService.VerifiedToken verified = jwtService.verify(token);
 
-        if (jwtService.isTokenValid(token) && userId != null) {
+        if (verified != null && verified.userId() != null && !authTokenService.isRevoked(verified)) {
+            Long userId = verified.userId();
 
+            // the token id rides along as credentials so logout can revoke this session
             UsernamePasswordAuthenticationToken authToken =
                 new UsernamePasswordAuthenticationToken(
                     userId,
-                    null,
+                    verified.tokenId(),
                     null
                 );
 
@@ -61,7 +74,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             SecurityContextHolder.getContext().setAuthentication(authToken);
             log.debug("JwtAuthFilter: set authentication for userId={}", userId);
         } else {
-            log.debug("JwtAuthFilter: token invalid or userId null");
+            log.debug("JwtAuthFilter: token invalid, revoked or userId null");
         }
 
         filterChain.doFilter(request, response);
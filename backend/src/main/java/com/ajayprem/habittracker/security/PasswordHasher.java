@@ -0,0 +1,135 @@
+package com.ajayprem.habittracker.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs BCrypt on a dedicated pool sized to the CPU count so login and signup
+ * bursts cannot starve request threads serving cheap endpoints. The queue is
+ * bounded; once it is full, callers fail fast with
+ * {@link HashingCapacityException}.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry registry,
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.queue-limit:32}") int queueLimit,
+            @Value("${app.auth.hashing.timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("op", "encode")
+                .description("BCrypt hashing time").register(registry);
+        this.matchTimer = Timer.builder("auth.password.hash").tag("op", "matches")
+                .description("BCrypt hashing time").register(registry);
+        this.rejected = Counter.builder("auth.password.hash.rejected")
+                .description("Hash requests refused because the queue was full or timed out").register(registry);
+        Gauge.builder("auth.password.hash.queue", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+        log.info("PasswordHasher: threads={} queueLimit={} timeoutMs={}", size, queueLimit, timeoutMs);
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchTimer);
+    }
+
+    /** True if the stored hash was made with a weaker work factor than configured. */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hash the password with the current work factor in the background and hand
+     * the result to {@code onHashed}. Skipped silently when the pool is busy;
+     * the next login will try again.
+     */
+    public void rehashInBackground(String rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onHashed.accept(encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+                } catch (Exception e) {
+                    log.warn("rehashInBackground: failed: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("rehashInBackground: pool busy, skipping");
+        }
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        Future<T> f;
+        try {
+            f = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("PasswordHasher: queue full, rejecting");
+            throw new HashingCapacityException("password hashing queue is full");
+        }
+        try {
+            return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            rejected.increment();
+            throw new HashingCapacityException("password hashing timed out");
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingCapacityException("interrupted while hashing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,183 @@
+package com.ajayprem.habittracker.security;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Per-user token buckets in front of the endpoints that fan out into several
+ * database round trips. Runs after {@link JwtAuthFilter} so buckets are keyed
+ * by user id; unauthenticated requests pass through and are rejected later by
+ * the security chain.
+ *
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (GCRA), updated with compare-and-set, so admitting a request
+ * takes no lock.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    /** Endpoint groups with separately configured limits. */
+    public enum Group {
+        CHECK_IN("check-in", 30, 1.0),
+        SEARCH("search", 20, 2.0),
+        PENALTIES("penalties", 20, 0.5);
+
+        final String key;
+        final int defaultCapacity;
+        final double defaultPerSecond;
+
+        Group(String key, int defaultCapacity, double defaultPerSecond) {
+            this.key = key;
+            this.defaultCapacity = defaultCapacity;
+            this.defaultPerSecond = defaultPerSecond;
+        }
+    }
+
+    private record Limit(long intervalNanos, long burstNanos) {
+    }
+
+    private record BucketKey(long userId, Group group) {
+    }
+
+    private final Map<Group, Limit> limits = new EnumMap<>(Group.class);
+    private final Map<BucketKey, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    private final Map<Group, Counter> rejected = new EnumMap<>(Group.class);
+
+    public RateLimitFilter(Environment env) {
+        this.enabled = env.getProperty("app.ratelimit.enabled", Boolean.class, true);
+        for (Group g : Group.values()) {
+            int capacity = env.getProperty("app.ratelimit." + g.key + ".capacity", Integer.class,
+                    g.defaultCapacity);
+            double perSecond = env.getProperty("app.ratelimit." + g.key + ".per-second", Double.class,
+                    g.defaultPerSecond);
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            limits.put(g, new Limit(interval, interval * Math.max(0, capacity - 1)));
+            log.info("RateLimitFilter: group={} capacity={} perSecond={}", g.key, capacity, perSecond);
+        }
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        for (Group g : Group.values()) {
+            rejected.put(g, Counter.builder("ratelimit.rejected").tag("group", g.key)
+                    .description("Requests refused with 429").register(registry));
+        }
+        Gauge.builder("ratelimit.buckets", buckets, Map::size)
+                .description("Live per-user rate limit buckets").register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || groupOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof Long userId)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Group group = groupOf(request);
+        long waitNanos = acquire(userId, group, System.nanoTime());
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            log.warn("RateLimitFilter: userId={} group={} over limit, retryAfter={}s", userId, group.key, retryAfter);
+            Counter c = rejected.get(group);
+            if (c != null) {
+                c.increment();
+            }
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":\"too many requests\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Take one token from the user's bucket. Returns 0 if the request is
+     * admitted, otherwise how long until a token becomes available.
+     */
+    long acquire(long userId, Group group, long now) {
+        Limit limit = limits.get(group);
+        AtomicLong tat = buckets.computeIfAbsent(new BucketKey(userId, group), k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            long wait = base - limit.burstNanos() - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, base + limit.intervalNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely; a fresh bucket behaves the
+     * same, so this only frees memory.
+     */
+    @Scheduled(fixedDelayString = "${app.ratelimit.evict-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(tat -> tat.get() <= now);
+        int removed = before - buckets.size();
+        if (removed > 0) {
+            log.debug("evictIdle: removed {} idle buckets, {} remain", removed, buckets.size());
+        }
+    }
+
+    static Group groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        // only the writes; listing penalties is cheap, often a 304, and polled
+        if (("DELETE".equals(method) && path.startsWith("/api/penalties/"))
+                || ("POST".equals(method) && path.endsWith("/penalty"))) {
+            return Group.PENALTIES;
+        }
+        if ("POST".equals(method) && (path.startsWith("/api/tasks/") || path.startsWith("/api/challenges/"))
+                && (path.endsWith("/complete-for-date") || path.endsWith("/uncomplete-for-date")
+                        || path.endsWith("/complete") || path.endsWith("/uncomplete"))) {
+            return Group.CHECK_IN;
+        }
+        if (path.equals("/api/friends/search")) {
+            return Group.SEARCH;
+        }
+        return null;
+    }
+}
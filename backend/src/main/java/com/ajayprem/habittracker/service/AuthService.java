@@ -1,5 +1,6 @@
 package com.ajayprem.habittracker.service;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -7,28 +8,45 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ajayprem.habittracker.dto.AuthResponses;
 import com.ajayprem.habittracker.dto.UserProfileDto;
 import com.ajayprem.habittracker.model.User;
+import com.ajayprem.habittracker.repository.FriendshipRepository;
 import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.security.PasswordHasher;
 import com.ajayprem.habittracker.util.CurrentUser;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed("service.invocations")
 public class AuthService {
 
     private static final Logger log = LoggerFactory.getLogger(AuthService.class);
 
     @Autowired
-    private JwtService jwtService;
+    private AuthTokenService authTokenService;
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private SecondLevelCacheInvalidation secondLevelCache;
 
     public AuthResponses signup(String email, String password, String name) {
         log.info("signup: email={} name={}", email, name);
@@ -37,17 +55,19 @@ public class AuthService {
             return null;
         }
 
-        String encrptedPassword = passwordEncoder.encode(password);
+        String encrptedPassword = passwordHasher.encode(password);
 
         User user = User.builder()
                 .name(name)
                 .email(email)
                 .password(encrptedPassword)
-                .createdAt(String.valueOf(System.currentTimeMillis()))
+                .createdAt(Instant.now())
                 .build();
 
         userRepository.save(user);
-        String token = jwtService.generateToken(user.getId(), user.getEmail());
+        userSearchIndex.add(user.getId(), user.getName(), user.getEmail());
+        invalidationBus.publish(InvalidationBus.Topic.USERS, String.valueOf(user.getId()));
+        String token = authTokenService.issue(user.getId(), user.getEmail());
         log.info("signup: created user id={}", user.getId());
         return new AuthResponses(token, String.valueOf(user.getId()));
     }
@@ -61,16 +81,27 @@ public class AuthService {
         }
 
         User user = optionalUser.get();
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHasher.matches(password, user.getPassword())) {
             log.warn("login: invalid password for email={}", email);
             return null;
         }
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            final Long uid = user.getId();
+            passwordHasher.rehashInBackground(password, hash -> {
+                userRepository.updatePassword(uid, hash);
+                // the cached User still holds the old hash
+                secondLevelCache.evictUser(uid);
+                invalidationBus.publish(InvalidationBus.Topic.USERS, String.valueOf(uid));
+                log.info("login: upgraded password hash for userId={}", uid);
+            });
+        }
 
-        String token = jwtService.generateToken(user.getId(), user.getEmail());
+        String token = authTokenService.issue(user.getId(), user.getEmail());
         log.info("login: success userId={}", user.getId());
         return new AuthResponses(token, String.valueOf(user.getId()));
     }
 
+    @Transactional(readOnly = true)
     public UserProfileDto profile() {
         log.info("profile: request");
         final Long userId = CurrentUser.id();
@@ -78,6 +109,11 @@ public class AuthService {
             log.warn("profile: unauthorized");
             return null;
         }
+        return profile(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public UserProfileDto profile(Long userId) {
         Optional<User> optionalUser = userRepository.findById(userId);
         if (optionalUser.isEmpty()) {
             return null;
@@ -89,11 +125,12 @@ public class AuthService {
         dto.setEmail(user.getEmail());
         dto.setName(user.getName());
         List<String> fr = new ArrayList<>();
-        for (User f : user.getFriends()) {
-            fr.add(String.valueOf(f.getId()));
+        for (Long friendId : friendshipRepository.findFriendIds(userId)) {
+            fr.add(String.valueOf(friendId));
         }
         dto.setFriends(fr);
-        dto.setCreatedAt(user.getCreatedAt());
+        // profiles have always reported the signup time in epoch milliseconds
+        dto.setCreatedAt(user.getCreatedAt() == null ? null : String.valueOf(user.getCreatedAt().toEpochMilli()));
         return dto;
     }
 
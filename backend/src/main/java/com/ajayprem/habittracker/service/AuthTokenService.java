@@ -0,0 +1,278 @@
+package com.ajayprem.habittracker.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ajayprem.habittracker.model.AuthToken;
+import com.ajayprem.habittracker.repository.AuthTokenRepository;
+import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.util.BloomFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Issues session tokens and tracks revoked ones. Every token carries a jti
+ * recorded in auth_token; logout flags that row.
+ *
+ * Tokens issued before jtis existed have no row. Logging out with one, or
+ * logging out everywhere, records a revoked row keyed {@code legacy:<user id>}
+ * instead, and any of the user's jti-less tokens issued before that row was
+ * written is rejected. The row expires a full token lifetime after it is
+ * written, by which time every such token has expired on its own.
+ *
+ * Revoked ids that have not yet expired are kept in memory as an exact map
+ * fronted by a Bloom filter. A token whose id misses the filter (nearly every
+ * request) is known not to be revoked without touching the database.
+ * Revocations reach the other instances through the {@link InvalidationBus};
+ * the periodic sync stays as a backstop.
+ */
+@Service
+public class AuthTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final String LEGACY_PREFIX = "legacy:";
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private AuthTokenRepository authTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Value("${app.auth.revocation.expected:100000}")
+    private int expectedRevocations;
+
+    // revoked token id -> token expiry, pruned once the token would have expired anyway
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile BloomFilter filter = new BloomFilter(1024, FALSE_POSITIVE_RATE);
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("auth.token.revoked", revoked, Map::size)
+                .description("Revoked, unexpired token ids held in memory").register(registry);
+    }
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        invalidationBus.subscribe(InvalidationBus.Topic.TOKENS, key -> {
+            int sep = key.lastIndexOf(':');
+            if (sep > 0) {
+                remember(key.substring(0, sep), Instant.ofEpochSecond(Long.parseLong(key.substring(sep + 1))));
+            }
+        });
+        invalidationBus.onFlush(this::rebuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Record a new session for the user and return its signed token.
+     */
+    public String issue(Long userId, String email) {
+        String tokenId = UUID.randomUUID().toString();
+        Instant expiresAt = Instant.now().plusMillis(JwtService.TOKEN_TTL_MS);
+        AuthToken row = AuthToken.builder()
+                .token(tokenId)
+                .user(userRepository.getReferenceById(userId))
+                .expiresAt(expiresAt)
+                .revoked(false)
+                .build();
+        authTokenRepository.save(row);
+        return jwtService.generateToken(userId, email, tokenId, expiresAt);
+    }
+
+    /** Revoke one of the user's sessions. Returns false if it was unknown or already revoked. */
+    @Transactional
+    public boolean revoke(Long userId, String tokenId) {
+        log.info("revoke: userId={}", userId);
+        Instant now = Instant.now();
+        if (tokenId == null) {
+            revokeLegacy(userId, now);
+            return true;
+        }
+        if (authTokenRepository.revoke(tokenId, userId, now) == 0) {
+            log.warn("revoke: token not found or already revoked for userId={}", userId);
+            return false;
+        }
+        authTokenRepository.findById(tokenId).ifPresent(t -> {
+            remember(t.getToken(), t.getExpiresAt());
+            publishRevocation(t.getToken(), t.getExpiresAt());
+        });
+        return true;
+    }
+
+    /** Revoke every live session of the user. Returns how many were revoked. */
+    @Transactional
+    public int revokeAll(Long userId) {
+        log.info("revokeAll: userId={}", userId);
+        Instant now = Instant.now();
+        List<Object[]> active = authTokenRepository.findActiveByUserId(userId, now);
+        int n = authTokenRepository.revokeAllForUser(userId, now);
+        for (Object[] row : active) {
+            remember((String) row[0], (Instant) row[1]);
+            publishRevocation((String) row[0], (Instant) row[1]);
+        }
+        revokeLegacy(userId, now);
+        log.info("revokeAll: revoked {} sessions for userId={}", n, userId);
+        return n;
+    }
+
+    public boolean isRevoked(JwtService.VerifiedToken token) {
+        if (token.tokenId() != null) {
+            return isRevoked(token.tokenId());
+        }
+        String legacyId = LEGACY_PREFIX + token.userId();
+        if (!filter.mightContain(legacyId)) {
+            return false;
+        }
+        Instant expiresAt = revoked.get(legacyId);
+        // iat has whole seconds, so a token issued in the second of the revocation is rejected too
+        return expiresAt != null
+                && token.issuedAtMillis() / 1000 <= expiresAt.minusMillis(JwtService.TOKEN_TTL_MS).getEpochSecond();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Pick up revocations written by other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation.sync-ms:15000}")
+    public void syncRevocations() {
+        Instant now = Instant.now();
+        // overlap the window to tolerate clock skew between instances
+        Instant since = lastSync.minusSeconds(60);
+        int n = 0;
+        for (Object[] row : authTokenRepository.findRevokedSince(since, now)) {
+            if (remember((String) row[0], (Instant) row[1])) {
+                n++;
+            }
+        }
+        lastSync = now;
+        if (n > 0) {
+            log.info("syncRevocations: picked up {} revocations", n);
+        }
+    }
+
+    /**
+     * Drop expired ids from memory and the table, and rebuild the filter so it
+     * does not fill up with dead entries.
+     */
+    @Scheduled(cron = "0 17 * * * *")
+    @Transactional
+    public void pruneExpired() {
+        Instant now = Instant.now();
+        int removed = authTokenRepository.deleteExpired(now);
+        revoked.values().removeIf(exp -> exp.isBefore(now));
+        rebuildFilter();
+        log.info("pruneExpired: deleted {} expired sessions, {} revoked ids remain", removed, revoked.size());
+    }
+
+    /**
+     * Reload all revoked, unexpired token ids from the table. The rows are
+     * merged into what is already held rather than replacing it: a revocation
+     * remembered after the read started is not in the rows and must survive,
+     * and nothing held can be wrong since a revocation is never undone.
+     */
+    public void rebuild() {
+        Instant now = Instant.now();
+        List<Object[]> rows = authTokenRepository.findRevokedUnexpired(now);
+        writeLock.lock();
+        try {
+            revoked.values().removeIf(exp -> exp.isBefore(now));
+            for (Object[] row : rows) {
+                revoked.put((String) row[0], (Instant) row[1]);
+            }
+            lastSync = now;
+            rebuildFilter();
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("rebuild: loaded {} revoked token ids, {} held", rows.size(), revoked.size());
+    }
+
+    /**
+     * Revoke the user's jti-less tokens issued up to now. Writing the row
+     * again moves the cutoff forward, for a token issued by an instance still
+     * on the old release after an earlier logout.
+     */
+    private void revokeLegacy(Long userId, Instant now) {
+        String legacyId = LEGACY_PREFIX + userId;
+        Instant expiresAt = now.plusMillis(JwtService.TOKEN_TTL_MS);
+        AuthToken row = authTokenRepository.findById(legacyId)
+                .orElseGet(() -> AuthToken.builder().token(legacyId).user(userRepository.getReferenceById(userId)).build());
+        row.setExpiresAt(expiresAt);
+        row.setRevoked(true);
+        row.setRevokedAt(now);
+        authTokenRepository.save(row);
+        remember(legacyId, expiresAt);
+        publishRevocation(legacyId, expiresAt);
+    }
+
+    private void publishRevocation(String tokenId, Instant expiresAt) {
+        if (expiresAt != null) {
+            invalidationBus.publish(InvalidationBus.Topic.TOKENS, tokenId + ":" + expiresAt.getEpochSecond());
+        }
+    }
+
+    private boolean remember(String tokenId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || expiresAt.isBefore(Instant.now())) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            boolean added = revoked.put(tokenId, expiresAt) == null;
+            filter.add(tokenId);
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rebuildFilter() {
+        writeLock.lock();
+        try {
+            BloomFilter fresh = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2),
+                    FALSE_POSITIVE_RATE);
+            for (String id : revoked.keySet()) {
+                fresh.add(id);
+            }
+            filter = fresh;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
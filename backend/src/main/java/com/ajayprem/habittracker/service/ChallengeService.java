@@ -6,7 +6,9 @@ import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -22,18 +24,32 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.ChallengeStats;
+import com.ajayprem.habittracker.dto.PenaltyResult;
+import com.ajayprem.habittracker.dto.UserEvent;
 import com.ajayprem.habittracker.model.Challenge;
 import com.ajayprem.habittracker.model.ChallengeParticipant;
 import com.ajayprem.habittracker.model.Penalty;
 import com.ajayprem.habittracker.model.User;
+import com.ajayprem.habittracker.repository.ChallengeInviteRow;
 import com.ajayprem.habittracker.repository.ChallengeParticipantRepository;
+import com.ajayprem.habittracker.repository.ChallengeParticipantRow;
 import com.ajayprem.habittracker.repository.ChallengeRepository;
+import com.ajayprem.habittracker.repository.ChallengeRow;
+import com.ajayprem.habittracker.repository.CompletionCountRow;
+import com.ajayprem.habittracker.repository.CompletionRow;
 import com.ajayprem.habittracker.repository.PenaltyRepository;
 import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.service.ResourceVersions.Resource;
 import com.ajayprem.habittracker.util.DateUtils;
+import com.ajayprem.habittracker.util.PeriodCalendar;
 import static com.ajayprem.habittracker.util.DateUtils.parseToLocalDate;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
+@Timed("service.invocations")
 public class ChallengeService {
 
     private static final Logger log = LoggerFactory.getLogger(ChallengeService.class);
@@ -50,81 +66,151 @@ public class ChallengeService {
     @Autowired
     private ChallengeParticipantRepository challengeParticipantRepository;
 
-    public List<Challenge> getChallengesEntities(Long userId) {
-        // helper: return challenges where creator or invited
-        log.info("getChallengesEntities: userId={}", userId);
-        List<Challenge> all = challengeRepository.findAll();
-        List<Challenge> out = new ArrayList<>();
-        for (Challenge c : all) {
-            if (Objects.equals(c.getCreator().getId(), userId) || c.getInvitedUsers().contains(userId)) {
-                out.add(c);
-            }
-        }
-        return out;
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private StatsService statsService;
+
+    private SweepMetrics penaltySweep;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        penaltySweep = new SweepMetrics("challenge-penalties", registry);
     }
 
     public String getFirstUncompletedDate(ChallengeParticipant participant, Challenge challenge) {
-        LocalDate startDate = parseToLocalDate(challenge.getStartDate());
-        LocalDate endDate = parseToLocalDate(challenge.getEndDate());
-        LocalDate today = LocalDate.now();
-        if (startDate == null || today == null) {
+        return getFirstUncompletedDate(participant.getCompletedDates(), challenge.getStartDate(),
+                challenge.getEndDate(), challenge.getPeriod());
+    }
+
+    /**
+     * Key of the first period a participant has not completed, among those
+     * from the challenge's first period up to, not including, the one
+     * containing today (or the end date, once that has passed).
+     */
+    private static String getFirstUncompletedDate(List<String> completedDates, LocalDate startDate,
+            LocalDate endDate, String period) {
+        if (startDate == null) {
             return null;
         }
+        return PeriodCalendar.firstMissing(completedDates, period, PeriodCalendar.index(startDate, period),
+                PeriodCalendar.index(closingDate(endDate), period));
+    }
 
-        LocalDate currentDate = DateUtils.periodKeyFor(startDate, challenge.getPeriod());
-        LocalDate finalDate = (endDate != null && endDate.isBefore(today)) ? endDate : today;
-        while (!currentDate.isEqual(finalDate)) {
-            String key = periodKeyFor(currentDate, challenge.getPeriod());
-            if (!participant.getCompletedDates().contains(key)) {
-                return key;
-            }
-            // Move to next date based on period
-            switch (challenge.getPeriod().toLowerCase()) {
-                case "weekly" -> currentDate = currentDate.plusWeeks(1);
-                case "monthly" -> currentDate = currentDate.plusMonths(1);
-                default -> currentDate = currentDate.plusDays(1);
-            }
+    public boolean isChallengeCompletedByParticipant(Challenge challenge, ChallengeParticipant participant) {
+        if (challenge.getStartDate() == null) {
+            return true;
         }
-
-        return null; // All dates completed
+        long from = PeriodCalendar.index(challenge.getStartDate(), challenge.getPeriod());
+        long to = PeriodCalendar.index(closingDate(challenge.getEndDate()), challenge.getPeriod());
+        int done = PeriodCalendar.countCompleted(participant.getCompletedDates(), challenge.getPeriod(), from, to);
+        return done >= to - from;
     }
 
-    public boolean isChallengeCompletedByParticipant(Challenge challenge, ChallengeParticipant participant) {
-        return getFirstUncompletedDate(participant, challenge) == null;
+    /** Today, or the end date if the challenge has already ended. */
+    private static LocalDate closingDate(LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        return endDate != null && endDate.isBefore(today) ? endDate : today;
     }
 
+    /**
+     * The challenges the user created or was invited to, in five queries however
+     * many there are: the visible ids, then the challenge rows, participants,
+     * participant completion keys and invitations of all of them at once.
+     */
+    @Transactional(readOnly = true)
     public List<ChallengeDto> getChallenges(Long uid) {
         log.info("getChallenges: uid={}", uid);
-        List<Challenge> list = getChallengesEntities(uid);
-        List<ChallengeDto> out = new ArrayList<>();
-        for (Challenge c : list) {
-            ChallengeDto dto = new ChallengeDto();
-            dto.setId(String.valueOf(c.getId()));
-            dto.setCreatorId(String.valueOf(c.getCreator().getId()));
-            dto.setTitle(c.getTitle());
-            dto.setDescription(c.getDescription());
-            dto.setPeriod(c.getPeriod());
-            dto.setPenaltyAmount(c.getPenaltyAmount());
-            List<ChallengeDto.Participant> parts = new ArrayList<>();
-            for (ChallengeParticipant cp : c.getParticipants()) {
-                ChallengeDto.Participant pd = new ChallengeDto.Participant();
-                pd.setName(cp.getUser().getName());
-                pd.setUserId(cp.getUser().getId());
-                pd.setStatus(cp.getStatus());
-                pd.setCompletedDates(cp.getCompletedDates());
-                pd.setLastUncompletedDate(getFirstUncompletedDate(cp, c));
-                parts.add(pd);
+        List<Long> ids = challengeRepository.findVisibleIds(uid);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ChallengeRow> rows = new LinkedHashMap<>();
+        Map<Long, ChallengeDto> byId = new LinkedHashMap<>();
+        for (ChallengeRow r : challengeRepository.findRowsByIds(ids)) {
+            rows.put(r.id(), r);
+            byId.put(r.id(), toDto(r));
+        }
+        Map<Long, ChallengeDto.Participant> participants = new LinkedHashMap<>();
+        Map<Long, Long> challengeOf = new HashMap<>();
+        for (ChallengeParticipantRow r : challengeRepository.findParticipantRowsByIds(ids)) {
+            ChallengeDto dto = byId.get(r.challengeId());
+            if (dto != null) {
+                ChallengeDto.Participant pd = participant(r.userId(), r.name(), r.status());
+                dto.getParticipants().add(pd);
+                participants.put(r.id(), pd);
+                challengeOf.put(r.id(), r.challengeId());
             }
-            dto.setParticipants(parts);
-            dto.setInvitedUserIds(c.getInvitedUsers());
-            dto.setStatus(c.getStatus());
-            dto.setCreatedAt(c.getCreatedAt());
-            dto.setNextDueDate(c.getNextDueDate());
-            out.add(dto);
         }
-        return out;
+        for (CompletionRow r : challengeRepository.findCompletionRowsByIds(ids)) {
+            ChallengeDto.Participant pd = participants.get(r.ownerId());
+            if (pd != null) {
+                pd.getCompletedDates().add(r.completedDate());
+            }
+        }
+        for (Map.Entry<Long, ChallengeDto.Participant> e : participants.entrySet()) {
+            ChallengeRow c = rows.get(challengeOf.get(e.getKey()));
+            e.getValue().setLastUncompletedDate(getFirstUncompletedDate(e.getValue().getCompletedDates(),
+                    c.startDate(), c.endDate(), c.period()));
+        }
+        for (ChallengeInviteRow r : challengeRepository.findInviteRowsByIds(ids)) {
+            ChallengeDto dto = byId.get(r.challengeId());
+            if (dto != null) {
+                dto.getInvitedUserIds().add(r.userId());
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    public ChallengeDto toDto(Challenge c) {
+        // element collections are copied so the DTO is usable after the session closes
+        ChallengeDto dto = toDto(new ChallengeRow(c.getId(), c.getCreator().getId(), c.getTitle(),
+                c.getDescription(), c.getPeriod(), c.getPenaltyAmount(), c.getStatus(), c.getCreatedAt(),
+                c.getNextDueDate(), c.getStartDate(), c.getEndDate()));
+        for (ChallengeParticipant cp : c.getParticipants()) {
+            ChallengeDto.Participant pd = participant(cp.getUser().getId(), cp.getUser().getName(), cp.getStatus());
+            pd.getCompletedDates().addAll(cp.getCompletedDates());
+            pd.setLastUncompletedDate(getFirstUncompletedDate(cp, c));
+            dto.getParticipants().add(pd);
+        }
+        dto.getInvitedUserIds().addAll(c.getInvitedUsers());
+        return dto;
+    }
+
+    /** The DTO for a challenge row, with empty participant and invitation lists for the caller to fill. */
+    private static ChallengeDto toDto(ChallengeRow r) {
+        ChallengeDto dto = new ChallengeDto();
+        dto.setId(String.valueOf(r.id()));
+        dto.setCreatorId(String.valueOf(r.creatorId()));
+        dto.setTitle(r.title());
+        dto.setDescription(r.description());
+        dto.setPeriod(r.period());
+        dto.setPenaltyAmount(r.penaltyAmount());
+        dto.setParticipants(new ArrayList<>());
+        dto.setInvitedUserIds(new ArrayList<>());
+        dto.setStatus(r.status());
+        dto.setCreatedAt(DateUtils.format(r.createdAt()));
+        dto.setNextDueDate(DateUtils.format(r.nextDueDate()));
+        return dto;
+    }
+
+    private static ChallengeDto.Participant participant(Long userId, String name, String status) {
+        ChallengeDto.Participant pd = new ChallengeDto.Participant();
+        pd.setName(name);
+        pd.setUserId(userId);
+        pd.setStatus(status);
+        pd.setCompletedDates(new ArrayList<>());
+        return pd;
     }
 
+    @Transactional
     public ChallengeDto createChallenge(Long uid, ChallengeDto input) {
         log.info("createChallenge: uid={} title={}", uid, input == null ? null : input.getTitle());
         Optional<User> ou = userRepository.findById(uid);
@@ -142,11 +228,12 @@ public class ChallengeService {
             c.setInvitedUsers(input.getInvitedUserIds());
         }
         c.setStatus("pending");
-        c.setCreatedAt(input.getCreatedAt() == null ? Instant.now().toString() : input.getCreatedAt());
-        c.setNextDueDate(
-                input.getNextDueDate() == null ? LocalDate.now().plusDays(1).toString() : input.getNextDueDate());
-        c.setStartDate(input.getStartDate());
-        c.setEndDate(input.getEndDate());
+        Instant createdAt = DateUtils.parseToInstant(input.getCreatedAt());
+        c.setCreatedAt(createdAt == null ? Instant.now() : createdAt);
+        LocalDate nextDueDate = DateUtils.parseToLocalDate(input.getNextDueDate());
+        c.setNextDueDate(nextDueDate == null ? LocalDate.now().plusDays(1) : nextDueDate);
+        c.setStartDate(DateUtils.parseToLocalDate(input.getStartDate()));
+        c.setEndDate(DateUtils.parseToLocalDate(input.getEndDate()));
         // add creator as participant
         ChallengeParticipant cp = new ChallengeParticipant();
         cp.setChallenge(c);
@@ -154,6 +241,7 @@ public class ChallengeService {
         cp.setStatus("accepted");
         c.getParticipants().add(cp);
         challengeRepository.save(c);
+        challengeChanged(c);
         log.info("createChallenge: created challenge id={} by user={}", c.getId(), uid);
         ChallengeDto out = new ChallengeDto();
         out.setId(String.valueOf(c.getId()));
@@ -161,6 +249,7 @@ public class ChallengeService {
         return out;
     }
 
+    @Transactional
     public boolean acceptChallenge(Long uid, String challengeIdStr) {
         log.info("acceptChallenge: uid={} challengeId={}", uid, challengeIdStr);
         Long cid = Long.valueOf(challengeIdStr);
@@ -175,6 +264,8 @@ public class ChallengeService {
             if (Objects.equals(p.getUser().getId(), uid)) {
                 p.setStatus("accepted");
                 challengeParticipantRepository.save(p);
+                challengeChanged(c);
+                challengeEvent(c, UserEvent.CHALLENGE_ACCEPTED, uid, null);
                 return true;
             }
         }
@@ -187,12 +278,15 @@ public class ChallengeService {
             c.setStatus("active");
         }
         // set the start date to today when accepted by any new user
-        c.setStartDate(LocalDate.now().toString());
+        c.setStartDate(LocalDate.now());
         challengeRepository.save(c);
+        challengeChanged(c);
+        challengeEvent(c, UserEvent.CHALLENGE_ACCEPTED, uid, null);
         log.info("acceptChallenge: user {} accepted challenge {}", uid, cid);
         return true;
     }
 
+    @Transactional
     public boolean rejectChallenge(Long uid, String challengeIdStr) {
         log.info("rejectChallenge: uid={} challengeId={}", uid, challengeIdStr);
         Long cid = Long.valueOf(challengeIdStr);
@@ -207,6 +301,7 @@ public class ChallengeService {
             if (Objects.equals(p.getUser().getId(), uid)) {
                 p.setStatus("rejected");
                 challengeParticipantRepository.save(p);
+                challengeChanged(c);
                 return true;
             }
         }
@@ -217,10 +312,12 @@ public class ChallengeService {
         c.getParticipants().add(np);
         c.setStatus("rejected");
         challengeRepository.save(c);
+        challengeChanged(c);
         log.info("rejectChallenge: user {} rejected challenge {}", uid, cid);
         return true;
     }
 
+    @Transactional
     public boolean completeChallenge(Long uid, String challengeIdStr, String dateStr) {
         log.info("completeChallenge: uid={} challengeId={}", uid, challengeIdStr);
         Long cid = Long.valueOf(challengeIdStr);
@@ -247,17 +344,11 @@ public class ChallengeService {
         }
 
         // Validate start/end date
-        if (c.getStartDate() != null && !c.getStartDate().isEmpty()) {
-            LocalDate start = LocalDate.parse(c.getStartDate());
-            if (date.isBefore(start)) {
-                return false;
-            }
+        if (c.getStartDate() != null && date.isBefore(c.getStartDate())) {
+            return false;
         }
-        if (c.getEndDate() != null && !c.getEndDate().isEmpty()) {
-            LocalDate end = LocalDate.parse(c.getEndDate());
-            if (date.isAfter(end)) {
-                return false;
-            }
+        if (c.getEndDate() != null && date.isAfter(c.getEndDate())) {
+            return false;
         }
 
         String key = periodKeyFor(date, c.getPeriod());
@@ -267,6 +358,9 @@ public class ChallengeService {
                 if (!p.getCompletedDates().contains(key)) {
                     p.getCompletedDates().add(key);
                     challengeParticipantRepository.save(p);
+                    statsService.completionChanged(uid, key, 1);
+                    challengeChanged(c);
+                    challengeEvent(c, UserEvent.CHALLENGE_COMPLETED, uid, key);
                     log.info("completeChallenge: user {} completed challenge {} with key {} (period={})", uid, cid, key,
                             c.getPeriod());
                     // remove any penalties for this task+period (if scheduled job created them)
@@ -274,6 +368,8 @@ public class ChallengeService {
                         List<Penalty> existing = penaltyRepository.findByChallengeIdAndFromUserId(Long.valueOf(challengeIdStr), uid);
                         for (Penalty penalty : existing) {
                             penaltyRepository.delete(penalty);
+                            resourceVersions.penaltyChanged(penalty);
+                            changeLog.penalty(penalty, true);
                             log.info("completeChallenge: removed penalty id={} for challenge {} uid={}", p.getId(),
                                     challengeIdStr,
                                     uid);
@@ -290,6 +386,7 @@ public class ChallengeService {
         return false;
     }
 
+    @Transactional
     public boolean uncompleteChallenge(Long uid, String challengeIdStr, String dateStr) {
         log.info("uncompleteChallenge: uid={} challengeId={}", uid, challengeIdStr);
         Long cid = Long.valueOf(challengeIdStr);
@@ -313,6 +410,8 @@ public class ChallengeService {
                 if (p.getCompletedDates().contains(key)) {
                     p.getCompletedDates().remove(key);
                     challengeParticipantRepository.save(p);
+                    statsService.completionChanged(uid, key, -1);
+                    challengeChanged(c);
                     log.info("uncompleteChallenge: removed key {} for user {} challenge {} (period={})", key, uid, cid,
                             c.getPeriod());
                     return true;
@@ -323,7 +422,8 @@ public class ChallengeService {
         return false;
     }
 
-    public Map<String, Object> applyChallengePenalty(Long uid, String challengeIdStr, String failedUserIdStr) {
+    @Transactional
+    public PenaltyResult applyChallengePenalty(Long uid, String challengeIdStr, String failedUserIdStr) {
         log.info("applyChallengePenalty: uid={} challengeId={} failedUserId={}", uid, challengeIdStr, failedUserIdStr);
         Long cid = Long.valueOf(challengeIdStr);
         Optional<Challenge> oc = challengeRepository.findById(cid);
@@ -338,13 +438,16 @@ public class ChallengeService {
         p.setToUser(c.getCreator());
         p.setAmount(c.getPenaltyAmount());
         p.setReason("Failed challenge: " + c.getTitle());
-        p.setCreatedAt(Instant.now().toString());
+        p.setCreatedAt(Instant.now());
         penaltyRepository.save(p);
+        resourceVersions.penaltyChanged(p);
+        changeLog.penalty(p, false);
+        eventBus.penaltyCreated(p);
         log.info("applyChallengePenalty: penalty created id={} amount={}", p.getId(), p.getAmount());
-        return Map.of("success", true, "penaltyId", String.valueOf(p.getId()));
+        return PenaltyResult.created(p.getId());
     }
 
-    private String periodKeyFor(LocalDate date, String period) {
+    private static String periodKeyFor(LocalDate date, String period) {
         if (date == null)
             return null;
         String p = period == null ? "daily" : period.toLowerCase();
@@ -511,13 +614,14 @@ public class ChallengeService {
         }
     }
 
-    public Map<String, Object> getChallengeStats(Long uid, String challengeIdStr) {
+    @Transactional(readOnly = true)
+    public ChallengeStats getChallengeStats(Long uid, String challengeIdStr) {
         log.info("getChallengeStats: uid={} challengeId={}", uid, challengeIdStr);
         Long cid = Long.valueOf(challengeIdStr);
         Optional<Challenge> oc = challengeRepository.findById(cid);
         if (oc.isEmpty()) {
             log.warn("getChallengeStats: challenge not found {}", cid);
-            return Map.of();
+            return null;
         }
         Challenge c = oc.get();
 
@@ -532,7 +636,7 @@ public class ChallengeService {
 
         if (userParticipant == null) {
             log.warn("getChallengeStats: user {} not participant of challenge {}", uid, cid);
-            return Map.of();
+            return null;
         }
 
         List<String> completedDates = userParticipant.getCompletedDates();
@@ -540,39 +644,62 @@ public class ChallengeService {
         int currentStreak = calcCurrentStreak(completedDates, c.getPeriod());
         int longestStreak = calcLongestStreak(completedDates, c.getPeriod());
 
-        return Map.of(
-                "totalCompletions", totalCompletions,
-                "currentStreak", currentStreak,
-                "longestStreak", longestStreak,
-                "penaltyAmount", c.getPenaltyAmount());
+        return new ChallengeStats(totalCompletions, currentStreak, longestStreak, c.getPenaltyAmount());
     }
 
     public List<Challenge> getAllChallenges() {
         return challengeRepository.findAll();
     }
 
+    @Transactional
     public void setChallengeCompleted(Challenge c) {
         c.setStatus("completed");
         challengeRepository.save(c);
+        challengeChanged(c);
+    }
+
+    /** Bump the challenge list, and log the change, for everyone who can see the challenge. */
+    private void challengeChanged(Challenge c) {
+        Set<Long> audience = audience(c);
+        resourceVersions.bump(audience, Resource.CHALLENGES);
+        changeLog.changed(audience, ChangeLog.Kind.CHALLENGE, c.getId());
+    }
+
+    /** Tell everyone else who can see the challenge what the user just did. */
+    private void challengeEvent(Challenge c, String type, Long actorId, String date) {
+        Set<Long> others = audience(c);
+        others.remove(actorId);
+        eventBus.publish(others, new UserEvent(type, String.valueOf(c.getId()), actorId, date));
+    }
+
+    private Set<Long> audience(Challenge c) {
+        Set<Long> ids = new HashSet<>();
+        if (c.getCreator() != null) {
+            ids.add(c.getCreator().getId());
+        }
+        if (c.getInvitedUsers() != null) {
+            ids.addAll(c.getInvitedUsers());
+        }
+        for (ChallengeParticipant cp : c.getParticipants()) {
+            if (cp.getUser() != null) {
+                ids.add(cp.getUser().getId());
+            }
+        }
+        return ids;
     }
 
     @Scheduled(cron = "0 * * * * *") // run daily at 00:05 todo
     @Transactional
     public void applyMissedChallengePenalties() {
         log.info("applyMissedChallengePenalties: start");
+        long start = System.nanoTime();
+        int created = 0;
         LocalDate today = LocalDate.now();
 
-        // Load all challenges with participants
-        List<Challenge> all = challengeRepository.findAll();
-        for (Challenge c : all) {
+        List<Challenge> ended = challengeRepository.findEndedActiveWithPenalty(today);
+        for (Challenge c : ended) {
             try {
-                LocalDate challengeEndDate = DateUtils.parseToLocalDate(c.getEndDate());
-                if (c.getPenaltyAmount() <= 0 || !"active".equalsIgnoreCase(c.getStatus())
-                        || !today.isAfter(challengeEndDate)) {
-                    continue;
-                }
-
-                applyPenaltiesForChallenge(c);
+                created += applyPenaltiesForChallenge(c);
                 setChallengeCompleted(c);
             } catch (Exception e) {
                 log.warn("applyMissedChallengePenalties: failed for challenge id={} reason={}", c.getId(),
@@ -580,16 +707,35 @@ public class ChallengeService {
             }
         }
 
-        log.info("applyMissedChallengePenalties: end");
+        penaltySweep.record(start, ended.size(), created);
+        log.info("applyMissedChallengePenalties: end scanned={} created={}", ended.size(), created);
     }
 
-    private void applyPenaltiesForChallenge(Challenge c) {
+    /** Returns the number of penalties created. */
+    private int applyPenaltiesForChallenge(Challenge c) {
+        int created = 0;
 
         List<ChallengeParticipant> penaltyOwer = new ArrayList<>();
         List<ChallengeParticipant> penaltyRecipient = new ArrayList<>();
 
+        // the same check as isChallengeCompletedByParticipant, with every participant's count from one query
+        long required = 0;
+        Map<Long, Long> completed = new HashMap<>();
+        if (c.getStartDate() != null) {
+            long from = PeriodCalendar.index(c.getStartDate(), c.getPeriod());
+            long to = PeriodCalendar.index(closingDate(c.getEndDate()), c.getPeriod());
+            required = Math.max(0, to - from);
+            if (required > 0) {
+                for (CompletionCountRow r : challengeRepository.countCompletionsByChallengeId(c.getId(),
+                        PeriodCalendar.start(from, c.getPeriod()).toString(),
+                        PeriodCalendar.start(to, c.getPeriod()).toString())) {
+                    completed.put(r.ownerId(), r.completed());
+                }
+            }
+        }
+
         for (ChallengeParticipant cp : c.getParticipants()) {
-            if (isChallengeCompletedByParticipant(c, cp)) {
+            if (completed.getOrDefault(cp.getId(), 0L) >= required) {
                 penaltyRecipient.add(cp);
             } else {
                 penaltyOwer.add(cp);
@@ -597,7 +743,7 @@ public class ChallengeService {
         }
 
         if (penaltyOwer.isEmpty() || penaltyRecipient.isEmpty()) {
-            return;
+            return created;
         }
 
         for (ChallengeParticipant ower : penaltyOwer) {
@@ -611,9 +757,13 @@ public class ChallengeService {
                     p.setToUser(recipient.getUser());
                     p.setAmount(c.getPenaltyAmount());
                     p.setReason("Failed to complete challenge: " + c.getTitle());
-                    p.setCreatedAt(Instant.now().toString());
+                    p.setCreatedAt(Instant.now());
                     // p.setPeriodKey("challenge");
                     penaltyRepository.save(p);
+                    resourceVersions.penaltyChanged(p);
+                    changeLog.penalty(p, false);
+                    eventBus.penaltyCreated(p);
+                    created++;
                     log.info("applyMissedChallengePenalties: created penalty id={} challengeId={} toUser={} amount={}",
                             p.getId(), c.getId(), recipient.getUser().getId(), p.getAmount());
                 } catch (Exception e) {
@@ -623,5 +773,6 @@ public class ChallengeService {
                 }
             }
         }
+        return created;
     }
 }
@@ -0,0 +1,94 @@
+package com.ajayprem.habittracker.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ajayprem.habittracker.model.ChangeLogEntry;
+import com.ajayprem.habittracker.model.Penalty;
+import com.ajayprem.habittracker.repository.ChangeLogRepository;
+
+/**
+ * Writes the per-user change log that {@link SyncService} reads. Every call
+ * has to join the caller's transaction, so an entry exists exactly when the
+ * change it describes was committed.
+ */
+@Component
+public class ChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLog.class);
+
+    public enum Kind {
+        TASK("task"),
+        CHALLENGE("challenge"),
+        FRIEND("friend"),
+        PENALTY("penalty");
+
+        final String key;
+
+        Kind(String key) {
+            this.key = key;
+        }
+
+        static Kind of(String key) {
+            for (Kind k : values()) {
+                if (k.key.equals(key)) {
+                    return k;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changed(Long userId, Kind kind, Long entityId) {
+        write(List.of(userId), kind, entityId, false);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changed(Collection<Long> userIds, Kind kind, Long entityId) {
+        write(userIds, kind, entityId, false);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long userId, Kind kind, Long entityId) {
+        write(List.of(userId), kind, entityId, true);
+    }
+
+    /** Record a new or removed penalty for both users it is between. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void penalty(Penalty p, boolean deleted) {
+        List<Long> users = new ArrayList<>(2);
+        if (p.getFromUser() != null) {
+            users.add(p.getFromUser().getId());
+        }
+        if (p.getToUser() != null && !users.contains(p.getToUser().getId())) {
+            users.add(p.getToUser().getId());
+        }
+        write(users, Kind.PENALTY, p.getId(), deleted);
+    }
+
+    private void write(Collection<Long> userIds, Kind kind, Long entityId, boolean deleted) {
+        Instant now = Instant.now();
+        List<ChangeLogEntry> entries = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (userId != null) {
+                entries.add(ChangeLogEntry.builder().userId(userId).resource(kind.key).entityId(entityId)
+                        .deleted(deleted).createdAt(now).build());
+            }
+        }
+        changeLogRepository.saveAll(entries);
+        log.debug("write: kind={} entityId={} deleted={} users={}", kind, entityId, deleted, userIds);
+    }
+}
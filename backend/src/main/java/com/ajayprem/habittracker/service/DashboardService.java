@@ -0,0 +1,152 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ajayprem.habittracker.dto.DashboardDto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Builds the first-screen payload in one request. The profile, task,
+ * challenge, friend and penalty reads are independent, so each runs on its own
+ * virtual thread in its own read-only transaction, and the response is ready
+ * as soon as the slowest of them finishes.
+ *
+ * The reads share one deadline. If any of them fails or the deadline passes,
+ * the others are cancelled and the whole request fails, so a caller never gets
+ * a partial dashboard.
+ *
+ * Every read holds a pool connection while it runs. A semaphore shared by all
+ * dashboard requests caps how many run at once (app.dashboard.max-connections),
+ * so a burst of dashboard loads queues here instead of draining the Hikari
+ * pool the rest of the application needs. A read still waiting for a permit
+ * when the deadline passes fails the request like any other timeout.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private PenaltyService penaltyService;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${app.dashboard.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Value("${app.dashboard.max-connections:5}")
+    private int maxConnections;
+
+    private Semaphore connections;
+
+    private final TransactionTemplate readOnly;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("dashboard-", 0).factory());
+
+    public DashboardService(PlatformTransactionManager transactionManager) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void init() {
+        connections = new Semaphore(Math.max(1, maxConnections));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Load everything the dashboard shows for the user. Returns null if the
+     * user does not exist, a read failed, or the deadline passed.
+     */
+    public DashboardDto load(Long uid) {
+        log.info("load: uid={}", uid);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        DashboardDto out = new DashboardDto();
+
+        ExecutorCompletionService<Runnable> scope = new ExecutorCompletionService<>(executor);
+        List<Future<Runnable>> forks = new ArrayList<>();
+        forks.add(fork(scope, uid, deadline, () -> authService.profile(uid), out::setUser));
+        forks.add(fork(scope, uid, deadline, () -> taskService.getTasks(uid), out::setTasks));
+        forks.add(fork(scope, uid, deadline, () -> challengeService.getChallenges(uid), out::setChallenges));
+        forks.add(fork(scope, uid, deadline, () -> friendService.listFriends(uid), out::setFriends));
+        forks.add(fork(scope, uid, deadline, () -> penaltyService.getPenaltySummary(uid), out::setPenaltySummary));
+
+        try {
+            // take results in completion order so the first failure cancels the rest at once
+            for (int i = 0; i < forks.size(); i++) {
+                long remaining = deadline - System.nanoTime();
+                Future<Runnable> done = remaining > 0 ? scope.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    log.warn("load: uid={} timed out after {} ms", uid, timeoutMs);
+                    return null;
+                }
+                // setters run on this thread, so the DTO is only touched by the caller
+                done.get().run();
+            }
+        } catch (ExecutionException e) {
+            log.warn("load: uid={} sub-query failed: {}", uid, e.getCause() == null ? e : e.getCause().toString());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Future<Runnable> f : forks) {
+                f.cancel(true);
+            }
+        }
+        return out.getUser() == null ? null : out;
+    }
+
+    private <T> Future<Runnable> fork(ExecutorCompletionService<Runnable> scope, Long uid, long deadline,
+            Supplier<T> read, Consumer<T> setter) {
+        return scope.submit(() -> {
+            if (!connections.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("no dashboard connection before the deadline");
+            }
+            try {
+                // the fork has no security context, so say whose read this is for replica routing
+                T value = readYourWrites.readingAs(uid, () -> readOnly.execute(status -> read.get()));
+                return () -> setter.accept(value);
+            } finally {
+                connections.release();
+            }
+        });
+    }
+}
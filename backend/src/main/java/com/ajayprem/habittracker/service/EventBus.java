@@ -0,0 +1,241 @@
+package com.ajayprem.habittracker.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.ajayprem.habittracker.dto.UserEvent;
+import com.ajayprem.habittracker.model.Penalty;
+import com.ajayprem.habittracker.util.AfterCommit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-process fan-out of {@link UserEvent}s to the user's open SSE streams.
+ *
+ * Publishing never blocks on a client: each subscriber has a bounded queue
+ * that drops its oldest entry when full, and a virtual thread drains the queue
+ * into the emitter only while there is something to send. The subscriber
+ * table is a concurrent map of immutable arrays, so publishing takes no lock.
+ */
+@Component
+public class EventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+
+    @Value("${app.events.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${app.events.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    @Value("${app.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Map<Long, Subscriber[]> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("sse-", 0).factory());
+    private final AtomicLong nextEventId = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+
+    private Counter published;
+    private Counter dropped;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("events.streams", open, AtomicInteger::get)
+                .description("Open SSE event streams").register(registry);
+        published = Counter.builder("events.published")
+                .description("Events queued to subscribers").register(registry);
+        dropped = Counter.builder("events.dropped")
+                .description("Events dropped because a subscriber's buffer was full").register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.values().forEach(arr -> Arrays.stream(arr).forEach(Subscriber::close));
+        sender.shutdownNow();
+    }
+
+    /**
+     * Open a new stream for the user. The oldest stream is closed if the user
+     * already has the maximum number open.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(userId, emitter);
+        Subscriber[] evicted = new Subscriber[1];
+        subscribers.compute(userId, (k, arr) -> {
+            if (arr == null) {
+                return new Subscriber[] { s };
+            }
+            int from = arr.length >= maxStreamsPerUser ? 1 : 0;
+            if (from == 1) {
+                evicted[0] = arr[0];
+            }
+            Subscriber[] next = Arrays.copyOfRange(arr, from, arr.length + 1);
+            next[next.length - 1] = s;
+            return next;
+        });
+        open.incrementAndGet();
+        if (evicted[0] != null) {
+            evicted[0].close();
+        }
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(s::close);
+        emitter.onError(e -> s.close());
+        s.enqueue(SseEmitter.event().name("connected").reconnectTime(5000));
+        log.info("subscribe: userId={} streams={}", userId, subscribers.getOrDefault(userId, new Subscriber[0]).length);
+        return emitter;
+    }
+
+    /** Deliver the event to the user's streams once the current transaction commits. */
+    public void publish(Long userId, UserEvent event) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> deliver(userId, event));
+    }
+
+    public void publish(Collection<Long> userIds, UserEvent event) {
+        for (Long id : userIds) {
+            publish(id, event);
+        }
+    }
+
+    /** Tell both sides of a new penalty about it. */
+    public void penaltyCreated(Penalty p) {
+        UserEvent e = new UserEvent(UserEvent.PENALTY_CREATED, String.valueOf(p.getId()),
+                p.getFromUser() == null ? null : p.getFromUser().getId(), p.getPeriodKey());
+        if (p.getFromUser() != null) {
+            publish(p.getFromUser().getId(), e);
+        }
+        if (p.getToUser() != null && (p.getFromUser() == null
+                || !Objects.equals(p.getToUser().getId(), p.getFromUser().getId()))) {
+            publish(p.getToUser().getId(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber[] arr : subscribers.values()) {
+            for (Subscriber s : arr) {
+                s.enqueue(SseEmitter.event().comment("hb"));
+            }
+        }
+    }
+
+    public int openStreams() {
+        return open.get();
+    }
+
+    private void deliver(Long userId, UserEvent event) {
+        Subscriber[] arr = subscribers.get(userId);
+        if (arr == null) {
+            return;
+        }
+        String id = Long.toString(nextEventId.incrementAndGet());
+        for (Subscriber s : arr) {
+            s.enqueue(SseEmitter.event().id(id).name(event.type()).data(event, MediaType.APPLICATION_JSON));
+            if (published != null) {
+                published.increment();
+            }
+        }
+    }
+
+    private void remove(Subscriber s) {
+        if (!s.closed.compareAndSet(false, true)) {
+            return;
+        }
+        open.decrementAndGet();
+        subscribers.computeIfPresent(s.userId, (k, arr) -> {
+            Subscriber[] next = Arrays.stream(arr).filter(x -> x != s).toArray(Subscriber[]::new);
+            return next.length == 0 ? null : next;
+        });
+    }
+
+    private final class Subscriber {
+        final Long userId;
+        final SseEmitter emitter;
+        final ConcurrentLinkedQueue<SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            queue.offer(event);
+            if (size.incrementAndGet() > bufferSize && queue.poll() != null) {
+                size.decrementAndGet();
+                if (dropped != null) {
+                    dropped.increment();
+                }
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                SseEventBuilder next;
+                while (!closed.get() && (next = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    emitter.send(next);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("drain: userId={} stream closed: {}", userId, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // an event may have arrived after the last poll but before draining was cleared
+            if (!closed.get() && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void close() {
+            remove(this);
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // already completed
+            }
+        }
+    }
+}
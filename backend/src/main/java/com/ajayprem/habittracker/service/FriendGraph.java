@@ -0,0 +1,374 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.repository.FriendshipRepository;
+import com.ajayprem.habittracker.util.AfterCommit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory friendship graph with one sorted {@code long[]} of neighbour ids
+ * per user, used to rank friend-of-friend suggestions by mutual-friend count
+ * without loading {@code User} entity graphs.
+ *
+ * Neighbour arrays are replaced, never mutated, so readers need no locking.
+ * Each user's top suggestions are precomputed in the background and
+ * recomputed when an edge within two hops changes; requests only ever read
+ * the precomputed list. Edge changes made on other instances arrive through
+ * the {@link InvalidationBus}.
+ */
+@Component
+public class FriendGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendGraph.class);
+
+    private static final long[] NONE = new long[0];
+
+    public record Suggestion(long userId, int mutualFriends) {
+    }
+
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator
+            .comparingInt(Suggestion::mutualFriends).reversed()
+            .thenComparingLong(Suggestion::userId);
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Value("${app.friends.suggestions.precomputed:50}")
+    private int precomputedSize;
+
+    private final Map<Long, long[]> adjacency = new ConcurrentHashMap<>();
+    private final Map<Long, List<Suggestion>> suggestions = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // edge changes made while a rebuild reads the table, replayed onto its snapshot; null when not rebuilding
+    private List<String> changedDuringRebuild;
+
+    private Timer computeTimer;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        invalidationBus.subscribe(InvalidationBus.Topic.FRIENDSHIPS, this::onRemoteChange);
+        invalidationBus.onFlush(this::rebuild);
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("friends.graph.users", adjacency, Map::size).register(registry);
+        Gauge.builder("friends.graph.suggestions.dirty", dirty, Set::size).register(registry);
+        computeTimer = Timer.builder("friends.graph.suggestions.compute")
+                .description("Time to rank friend-of-friend suggestions for one user").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reload every edge from the database and schedule all suggestions for
+     * recomputation. Edge changes applied while the table is being read are
+     * recorded and replayed in order onto the new snapshot; adding or removing
+     * an edge twice is harmless, so one the read already saw does no damage.
+     * The old suggestion lists are served until they are recomputed.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            record(new ArrayList<>());
+            Map<Long, List<Long>> lists = new HashMap<>();
+            int edges = 0;
+            int replayed;
+            try {
+                for (Object[] row : friendshipRepository.findAllEdges()) {
+                    lists.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Long) row[1]);
+                    edges++;
+                }
+            } catch (RuntimeException e) {
+                record(null);
+                throw e;
+            }
+            writeLock.lock();
+            try {
+                // replace entries in place so readers never see an empty graph
+                adjacency.keySet().retainAll(lists.keySet());
+                for (Map.Entry<Long, List<Long>> e : lists.entrySet()) {
+                    long[] arr = e.getValue().stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+                    adjacency.put(e.getKey(), arr);
+                }
+                for (String change : changedDuringRebuild) {
+                    apply(change);
+                }
+                replayed = changedDuringRebuild.size();
+                changedDuringRebuild = null;
+                dirty.addAll(adjacency.keySet());
+                dirty.addAll(suggestions.keySet());
+            } finally {
+                writeLock.unlock();
+            }
+            log.info("rebuild: loaded {} users and {} directed edges, replayed {} changes in {} ms", lists.size(),
+                    edges, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void record(List<String> changes) {
+        writeLock.lock();
+        try {
+            changedDuringRebuild = changes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Add the edge once the current transaction commits; other instances hear of it only then too. */
+    public void addEdge(long a, long b) {
+        AfterCommit.run(() -> link(a, b));
+        invalidationBus.publish(InvalidationBus.Topic.FRIENDSHIPS, "+" + a + ":" + b);
+    }
+
+    public void removeEdge(long a, long b) {
+        AfterCommit.run(() -> unlink(a, b));
+        invalidationBus.publish(InvalidationBus.Topic.FRIENDSHIPS, "-" + a + ":" + b);
+    }
+
+    private void link(long a, long b) {
+        change("+" + a + ":" + b);
+    }
+
+    private void unlink(long a, long b) {
+        change("-" + a + ":" + b);
+    }
+
+    private void onRemoteChange(String key) {
+        if (key.indexOf(':') >= 2) {
+            change(key);
+        }
+    }
+
+    /** Apply an edge change, {@code +a:b} or {@code -a:b}, and record it if a rebuild is reading the table. */
+    private void change(String key) {
+        writeLock.lock();
+        try {
+            apply(key);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(key);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // called with writeLock held
+    private void apply(String key) {
+        int sep = key.indexOf(':');
+        long a = Long.parseLong(key.substring(1, sep));
+        long b = Long.parseLong(key.substring(sep + 1));
+        if (key.charAt(0) == '+') {
+            adjacency.put(a, insert(neighbours(a), b));
+            adjacency.put(b, insert(neighbours(b), a));
+            markAround(a, b);
+        } else {
+            markAround(a, b);
+            adjacency.put(a, delete(neighbours(a), b));
+            adjacency.put(b, delete(neighbours(b), a));
+        }
+    }
+
+    public long[] neighbours(long uid) {
+        return adjacency.getOrDefault(uid, NONE);
+    }
+
+    /**
+     * Best suggestions for the user, most mutual friends first, from the
+     * precomputed list. A stale list is served until {@link #refreshDirty}
+     * replaces it; a user with none yet gets an empty list and is queued, so
+     * the ranking never runs on the request thread.
+     */
+    public List<Suggestion> suggestionsFor(long uid) {
+        List<Suggestion> cached = suggestions.get(uid);
+        if (cached == null) {
+            dirty.add(uid);
+            return List.of();
+        }
+        return cached;
+    }
+
+    @Scheduled(fixedDelayString = "${app.friends.suggestions.refresh-ms:5000}")
+    public void refreshDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        int n = 0;
+        for (Long uid : List.copyOf(dirty)) {
+            if (dirty.remove(uid)) {
+                suggestions.put(uid, compute(uid, precomputedSize));
+                n++;
+            }
+        }
+        log.debug("refreshDirty: recomputed suggestions for {} users", n);
+    }
+
+    /**
+     * Count, for every friend-of-friend, how many of the user's sorted neighbour
+     * lists contain it (the size of the intersection of both users' friend
+     * lists), then keep the best {@code k} non-friends in a min-heap.
+     */
+    List<Suggestion> compute(long uid, int k) {
+        long start = System.nanoTime();
+        long[] friends = neighbours(uid);
+        if (friends.length == 0 || k <= 0) {
+            return List.of();
+        }
+        long twoHop = 0;
+        for (long f : friends) {
+            twoHop += neighbours(f).length;
+        }
+        Counter counter = new Counter((int) Math.min(1 << 21, Math.max(16, twoHop)));
+        for (long f : friends) {
+            for (long c : neighbours(f)) {
+                counter.increment(c);
+            }
+        }
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(k + 1, BEST_FIRST.reversed());
+        for (int i = 0; i < counter.keys.length; i++) {
+            long c = counter.keys[i];
+            if (c == 0 || c == uid) {
+                continue;
+            }
+            int count = counter.counts[i];
+            Suggestion worst = top.peek();
+            boolean better = top.size() < k || (worst != null && (count > worst.mutualFriends()
+                    || (count == worst.mutualFriends() && c < worst.userId())));
+            // existing friends are dropped here rather than in the counting loop
+            if (better && Arrays.binarySearch(friends, c) < 0) {
+                top.offer(new Suggestion(c, count));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        }
+        List<Suggestion> out = new ArrayList<>(top);
+        out.sort(BEST_FIRST);
+        if (computeTimer != null) {
+            computeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return List.copyOf(out);
+    }
+
+    // a change to edge (a, b) alters the two-hop neighbourhood of a, b and their friends
+    private void markAround(long a, long b) {
+        dirty.add(a);
+        dirty.add(b);
+        for (long x : neighbours(a)) {
+            dirty.add(x);
+        }
+        for (long x : neighbours(b)) {
+            dirty.add(x);
+        }
+    }
+
+    private static long[] insert(long[] arr, long v) {
+        int i = Arrays.binarySearch(arr, v);
+        if (i >= 0) {
+            return arr;
+        }
+        int at = -i - 1;
+        long[] out = new long[arr.length + 1];
+        System.arraycopy(arr, 0, out, 0, at);
+        out[at] = v;
+        System.arraycopy(arr, at, out, at + 1, arr.length - at);
+        return out;
+    }
+
+    private static long[] delete(long[] arr, long v) {
+        int i = Arrays.binarySearch(arr, v);
+        if (i < 0) {
+            return arr;
+        }
+        long[] out = new long[arr.length - 1];
+        System.arraycopy(arr, 0, out, 0, i);
+        System.arraycopy(arr, i + 1, out, i, arr.length - i - 1);
+        return out;
+    }
+
+    /** Open-addressing long -> int counter; ids are positive so 0 marks a free slot. */
+    private static final class Counter {
+        long[] keys;
+        int[] counts;
+        int size;
+
+        Counter(int expected) {
+            int cap = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+            keys = new long[cap];
+            counts = new int[cap];
+        }
+
+        void increment(long key) {
+            int mask = keys.length - 1;
+            int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) {
+                    counts[i]++;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            counts[i] = 1;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                long key = oldKeys[j];
+                if (key == 0) {
+                    continue;
+                }
+                int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                counts[i] = oldCounts[j];
+            }
+        }
+    }
+}
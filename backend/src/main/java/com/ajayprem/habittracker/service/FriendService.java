@@ -3,11 +3,12 @@ package com.ajayprem.habittracker.service;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,15 +16,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ajayprem.habittracker.dto.FriendSuggestionDto;
+import com.ajayprem.habittracker.dto.UserEvent;
 import com.ajayprem.habittracker.dto.UserProfileDto;
 import com.ajayprem.habittracker.model.FriendRequest;
 import com.ajayprem.habittracker.model.FriendRequestKey;
 import com.ajayprem.habittracker.model.User;
 import com.ajayprem.habittracker.repository.FriendRequestRepository;
+import com.ajayprem.habittracker.repository.FriendRequestRow;
+import com.ajayprem.habittracker.repository.FriendshipRepository;
 import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.repository.UserSummary;
 import com.ajayprem.habittracker.util.CurrentUser;
+import com.ajayprem.habittracker.util.LongHashSet;
+
+import io.micrometer.core.annotation.Timed;
 
 @Service
+@Timed("service.invocations")
 public class FriendService {
     private static final Logger log = LoggerFactory.getLogger(FriendService.class);
 
@@ -33,81 +43,100 @@ public class FriendService {
     @Autowired
     private FriendRequestRepository friendRequestRepository;
 
-    public List<UserProfileDto> searchByEmail(String query) {
-        final Long userId = CurrentUser.id();
-        log.info("searchByEmail: query='{}' userId='{}'", query, userId);
-        
-        List<UserProfileDto> out = new ArrayList<>();
-        Set<Long> seen = new HashSet<>();
-        if (userId != null) {
-            seen.add(userId);
-        }
+    @Autowired
+    private FriendshipRepository friendshipRepository;
 
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (optionalUser.isEmpty()) {
-            return null;
-        }
+    @Autowired
+    private UserSearchIndex userSearchIndex;
 
-        User user = optionalUser.get();
+    @Autowired
+    private RelationshipCache relationshipCache;
 
-        for (User friend : user.getFriends()) {
-            seen.add(friend.getId());
-        }
+    @Autowired
+    private FriendGraph friendGraph;
 
-        List<FriendRequest> sentRequests = getSentFriendRequests(userId);
-        for (FriendRequest fr : sentRequests) {
-            seen.add(fr.getToUser().getId());
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EventBus eventBus;
+
+    public List<UserProfileDto> searchByEmail(String query, int limit) {
+        final Long userId = CurrentUser.id();
+        log.info("searchByEmail: query='{}' userId='{}' limit={}", query, userId, limit);
+        
+        if (userId == null) {
+            return null;
         }
 
-        List<FriendRequest> receivedRequests = getFriendRequests(userId);
-        for (FriendRequest fr : receivedRequests) {
-            seen.add(fr.getFromUser().getId());
+        List<UserProfileDto> out = new ArrayList<>();
+        LongHashSet exclusions = relationshipCache.exclusionsFor(userId);
+        for (UserSearchIndex.Entry e : userSearchIndex.search(query, limit, exclusions::contains)) {
+            UserProfileDto d = new UserProfileDto();
+            d.setId(e.id());
+            d.setEmail(e.email());
+            d.setName(e.name());
+            out.add(d);
         }
+        return out;
+    }
 
-        List<User> users = userRepository.findByEmailContaining(query);
-        for (User u : users) {
-            if (!seen.contains(u.getId())) {
-                UserProfileDto d = new UserProfileDto();
-                d.setId(u.getId());
-                d.setEmail(u.getEmail());
-                d.setName(u.getName());
-                out.add(d);
-                seen.add(u.getId());
+    @Transactional(readOnly = true)
+    public List<FriendSuggestionDto> suggestFriends(Long uid, int limit) {
+        log.info("suggestFriends: uid={} limit={}", uid, limit);
+        LongHashSet exclusions = relationshipCache.exclusionsFor(uid);
+        Map<Long, Integer> mutual = new LinkedHashMap<>();
+        for (FriendGraph.Suggestion s : friendGraph.suggestionsFor(uid)) {
+            if (mutual.size() == limit) {
+                break;
+            }
+            if (!exclusions.contains(s.userId())) {
+                mutual.put(s.userId(), s.mutualFriends());
             }
         }
-
-        users = userRepository.findByNameContainingIgnoreCase(query);
-        for (User u : users) {
-            if (!seen.contains(u.getId())) {
-                UserProfileDto d = new UserProfileDto();
-                d.setId(u.getId());
-                d.setEmail(u.getEmail());
-                d.setName(u.getName());
-                out.add(d);
+        if (mutual.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, UserSummary> users = new HashMap<>();
+        for (UserSummary u : userRepository.findSummariesByIds(mutual.keySet())) {
+            users.put(u.getId(), u);
+        }
+        List<FriendSuggestionDto> out = new ArrayList<>();
+        for (Map.Entry<Long, Integer> e : mutual.entrySet()) {
+            UserSummary u = users.get(e.getKey());
+            if (u == null) {
+                continue;
             }
+            FriendSuggestionDto d = new FriendSuggestionDto();
+            d.setId(u.getId());
+            d.setName(u.getName());
+            d.setEmail(u.getEmail());
+            d.setMutualFriends(e.getValue());
+            out.add(d);
         }
         return out;
     }
 
-    public List<FriendRequest> getSentFriendRequests(Long uid) {
+    @Transactional(readOnly = true)
+    public List<FriendRequestRow> getSentFriendRequests(Long uid) {
         log.info("getSentFriendRequests: uid={}", uid);
-        return friendRequestRepository.findByFromUserId(uid);
+        return friendRequestRepository.findSentRows(uid);
     }
 
-    public List<FriendRequest> getFriendRequests(Long uid) {
+    @Transactional(readOnly = true)
+    public List<FriendRequestRow> getFriendRequests(Long uid) {
         log.info("getFriendRequests: uid={}", uid);
-        return friendRequestRepository.findByToUserId(uid);
+        return friendRequestRepository.findIncomingRows(uid);
     }
 
-     public List<UserProfileDto> listFriends(Long uid) {
+    @Transactional(readOnly = true)
+    public List<UserProfileDto> listFriends(Long uid) {
         log.info("listFriends: uid={}", uid);
-        Optional<User> ou = userRepository.findById(uid);
-        if (ou.isEmpty()) {
-            log.warn("listFriends: user not found: {}", uid);
-            return Collections.emptyList();
-        }
         List<UserProfileDto> out = new ArrayList<>();
-        for (User f : ou.get().getFriends()) {
+        for (UserSummary f : friendshipRepository.findFriendSummaries(uid)) {
             UserProfileDto d = new UserProfileDto();
             d.setId(f.getId());
             d.setName(f.getName());
@@ -141,10 +170,13 @@ public class FriendService {
         fr.setStatus("pending");
         fr.setCreatedAt(Instant.now().toString());
         friendRequestRepository.save(fr);
+        relationshipCache.related(fromId, friendId);
+        eventBus.publish(friendId, new UserEvent(UserEvent.FRIEND_REQUEST, String.valueOf(fromId), fromId, null));
         log.info("sendFriendRequest: saved friend request id={}", fr.getId());
         return true;
     }
 
+    @Transactional
     public boolean acceptFriendRequest(Long uid, Long fromUserId) {
         log.info("acceptFriendRequest: uid={} fromUserId={}", uid, fromUserId);
         FriendRequestKey key = new FriendRequestKey();
@@ -160,14 +192,15 @@ public class FriendService {
             log.warn("acceptFriendRequest: user {} is not the recipient of request", uid);
             return false;
         }
-        User a = fr.getToUser();
-        User b = fr.getFromUser();
-        a.getFriends().add(b);
-        b.getFriends().add(a);
-        userRepository.save(a);
-        userRepository.save(b);
+        friendshipRepository.insertEdge(uid, fromUserId);
         friendRequestRepository.delete(fr);
-        log.info("acceptFriendRequest: users {} and {} are now friends", a.getId(), b.getId());
+        relationshipCache.related(uid, fromUserId);
+        friendGraph.addEdge(uid, fromUserId);
+        resourceVersions.bump(List.of(uid, fromUserId), ResourceVersions.Resource.FRIENDS);
+        changeLog.changed(uid, ChangeLog.Kind.FRIEND, fromUserId);
+        changeLog.changed(fromUserId, ChangeLog.Kind.FRIEND, uid);
+        eventBus.publish(fromUserId, new UserEvent(UserEvent.FRIEND_ACCEPTED, String.valueOf(uid), uid, null));
+        log.info("acceptFriendRequest: users {} and {} are now friends", uid, fromUserId);
         return true;
     }
 
@@ -190,6 +223,7 @@ public class FriendService {
             return false;
         }
         friendRequestRepository.delete(fr);
+        relationshipCache.unrelated(fromIdStr, toIdStr);
         log.info("deleteFriendRequest: deleted request");
         return true;
     }
@@ -197,22 +231,15 @@ public class FriendService {
     @Transactional
     public boolean removeFriend(Long uid, Long friendId) {
         log.info("removeFriend: uid={} friendId={}", uid, friendId);
-        Optional<User> ou = userRepository.findById(uid);
-        Optional<User> of = userRepository.findById(friendId);
-        if (ou.isEmpty() || of.isEmpty()) {
-            log.warn("removeFriend: one of users not found (uid={}, friendId={})", uid, friendId);
-            return false;
-        }
-        User u = ou.get();
-        User f = of.get();
-        if (!u.getFriends().contains(f)) {
+        if (friendshipRepository.deleteEdge(uid, friendId) == 0) {
             log.warn("removeFriend: users are not friends (uid={}, friendId={})", uid, friendId);
             return false;
         }
-        u.getFriends().remove(f);
-        f.getFriends().remove(u);
-        userRepository.save(u);
-        userRepository.save(f);
+        relationshipCache.unrelated(uid, friendId);
+        friendGraph.removeEdge(uid, friendId);
+        resourceVersions.bump(List.of(uid, friendId), ResourceVersions.Resource.FRIENDS);
+        changeLog.deleted(uid, ChangeLog.Kind.FRIEND, friendId);
+        changeLog.deleted(friendId, ChangeLog.Kind.FRIEND, uid);
         log.info("removeFriend: users {} and {} are no longer friends", uid, friendId);
         return true;
     }
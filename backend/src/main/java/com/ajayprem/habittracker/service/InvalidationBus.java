@@ -0,0 +1,388 @@
+package com.ajayprem.habittracker.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the in-memory caches of every instance coherent through Postgres
+ * LISTEN/NOTIFY.
+ *
+ * A cache that changes locally publishes a short key, e.g. {@code 42:t} for
+ * user 42's task list. Keys published inside a transaction are collected per
+ * transaction and sent with {@code pg_notify} on the transaction's own
+ * connection just before commit, so other instances hear about a change only
+ * if it commits, and only after it is visible to them. Outside a transaction
+ * they are sent straight away.
+ *
+ * Each instance holds one dedicated connection that LISTENs on the channel.
+ * Notifications arriving within a short window are coalesced, keys this
+ * instance sent itself are skipped, and the rest are handed to the handlers
+ * registered for their topic. Notifications sent while the listener is
+ * disconnected are lost, so after every reconnect each cache is flushed
+ * wholesale instead.
+ */
+@Component
+public class InvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    public static final String CHANNEL = "cache_invalidation";
+
+    // Postgres rejects payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD = 7900;
+
+    public enum Topic {
+        /** {@code <userId>:<resource tag>:<version>} - a list version moved, see {@link ResourceVersions}. */
+        VERSIONS('v'),
+        /** {@code <token id>:<expiry epoch seconds>} - a session was revoked. */
+        TOKENS('t'),
+        /** {@code <a>:<b>} - a friend request or friendship between the two users changed. */
+        RELATIONS('r'),
+        /** {@code +<a>:<b>} or {@code -<a>:<b>} - a friendship was added or removed. */
+        FRIENDSHIPS('f'),
+        /** {@code <userId>} - the user row was inserted or updated. */
+        USERS('u');
+
+        final char code;
+
+        Topic(char code) {
+            this.code = code;
+        }
+
+        static Topic of(char code) {
+            for (Topic t : values()) {
+                if (t.code == code) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.invalidation.coalesce-ms:20}")
+    private int coalesceMs;
+
+    @Value("${app.invalidation.poll-ms:1000}")
+    private int pollMs;
+
+    @Value("${app.invalidation.keepalive-ms:30000}")
+    private long keepaliveMs;
+
+    @Value("${app.invalidation.reconnect-ms:2000}")
+    private long reconnectMs;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    private final String nodeId = Long.toString(UUID.randomUUID().getMostSignificantBits() >>> 1, 36);
+    private final Map<Topic, List<Consumer<String>>> handlers = new EnumMap<>(Topic.class);
+    private final List<Runnable> flushHandlers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private volatile boolean running;
+    private Thread listener;
+
+    private Counter sent;
+    private Counter received;
+    private Counter flushes;
+
+    public InvalidationBus() {
+        for (Topic t : Topic.values()) {
+            handlers.put(t, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        sent = Counter.builder("invalidation.sent")
+                .description("Invalidation keys sent to other instances").register(registry);
+        received = Counter.builder("invalidation.received")
+                .description("Invalidation keys received from other instances").register(registry);
+        flushes = Counter.builder("invalidation.flushes")
+                .description("Full cache flushes after the listener reconnected").register(registry);
+        Gauge.builder("invalidation.connected", connected, c -> c.get() ? 1 : 0)
+                .description("Whether the invalidation listener is connected").register(registry);
+    }
+
+    /**
+     * Start listening. The first connection is normally made before the caches
+     * load at application start, so nothing is flushed for it.
+     */
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("start: invalidation bus disabled");
+            return;
+        }
+        running = true;
+        listener = Thread.ofPlatform().name("invalidation-listener").daemon().start(this::listen);
+        log.info("start: nodeId={} channel={}", nodeId, CHANNEL);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /** Call the handler with the key of every remote invalidation on the topic. */
+    public void subscribe(Topic topic, Consumer<String> handler) {
+        handlers.get(topic).add(handler);
+    }
+
+    /** Call the action whenever invalidations may have been missed and the whole cache must go. */
+    public void onFlush(Runnable action) {
+        flushHandlers.add(action);
+    }
+
+    /** Tell the other instances that the key changed, once the current transaction commits. */
+    public void publish(Topic topic, String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        String item = topic.code + key;
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive()) {
+            Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+            if (batch == null) {
+                batch = new Batch();
+                TransactionSynchronizationManager.bindResource(this, batch);
+                TransactionSynchronizationManager.registerSynchronization(batch);
+            }
+            coalesce(batch.items, item);
+        } else {
+            send(List.of(item));
+        }
+    }
+
+    /**
+     * Send the keys straight away instead of at commit. Inside a transaction
+     * they still go out on its connection, so they are delivered only if it
+     * commits. For callers that learn their keys while the transaction is
+     * already committing, when {@link #publish} would be too late to batch.
+     */
+    public void publishNow(Topic topic, Collection<String> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        List<String> items = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            items.add(topic.code + key);
+        }
+        send(items);
+    }
+
+    /**
+     * Keep one copy of each key, positioned at its latest occurrence, so keys
+     * whose order matters (an add then a remove) still end in the right state.
+     */
+    private static void coalesce(LinkedHashSet<String> items, String item) {
+        items.remove(item);
+        items.add(item);
+    }
+
+    private void send(Collection<String> items) {
+        try {
+            StringBuilder payload = new StringBuilder(nodeId);
+            int n = 0;
+            for (String item : items) {
+                if (payload.length() + 1 + item.length() > MAX_PAYLOAD && n > 0) {
+                    notify(payload.toString());
+                    payload.setLength(0);
+                    payload.append(nodeId);
+                    n = 0;
+                }
+                payload.append(' ').append(item);
+                n++;
+            }
+            if (n > 0) {
+                notify(payload.toString());
+            }
+            if (sent != null) {
+                sent.increment(items.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("send: failed to publish {} invalidations: {}", items.size(), e.toString());
+        }
+    }
+
+    private void notify(String payload) {
+        // pg_notify returns void, so there is nothing to read back
+        jdbcTemplate.query("select pg_notify(?, ?)", (RowCallbackHandler) rs -> {
+        }, CHANNEL, payload);
+    }
+
+    private void listen() {
+        boolean first = true;
+        while (running) {
+            try (Connection c = DriverManager.getConnection(url, username, password)) {
+                PGConnection pg = c.unwrap(PGConnection.class);
+                try (Statement st = c.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                connected.set(true);
+                log.info("listen: listening on {}", CHANNEL);
+                // anything sent while we were away is lost; flush only after LISTEN so nothing slips between
+                if (!first) {
+                    flushAll();
+                }
+                first = false;
+                receive(c, pg);
+            } catch (SQLException e) {
+                log.warn("listen: connection lost: {}", e.toString());
+            } finally {
+                connected.set(false);
+            }
+            if (running) {
+                sleep(reconnectMs + ThreadLocalRandom.current().nextLong(reconnectMs / 2 + 1));
+            }
+        }
+    }
+
+    private void receive(Connection c, PGConnection pg) throws SQLException {
+        long lastCheck = System.nanoTime();
+        while (running) {
+            PGNotification[] first = pg.getNotifications(pollMs);
+            if (first == null || first.length == 0) {
+                if (System.nanoTime() - lastCheck > TimeUnit.MILLISECONDS.toNanos(keepaliveMs)) {
+                    // a quiet socket may be half-open; a round trip finds out
+                    try (Statement st = c.createStatement()) {
+                        st.execute("select 1");
+                    }
+                    lastCheck = System.nanoTime();
+                }
+                continue;
+            }
+            lastCheck = System.nanoTime();
+            LinkedHashSet<String> items = new LinkedHashSet<>();
+            collect(first, items);
+            PGNotification[] more;
+            while ((more = pg.getNotifications(coalesceMs)) != null && more.length > 0) {
+                collect(more, items);
+            }
+            dispatch(items);
+        }
+    }
+
+    private void collect(PGNotification[] notifications, LinkedHashSet<String> items) {
+        for (PGNotification n : notifications) {
+            String[] parts = n.getParameter().split(" ");
+            if (parts.length == 0 || nodeId.equals(parts[0])) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (!parts[i].isEmpty()) {
+                    coalesce(items, parts[i]);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Collection<String> items) {
+        for (String item : items) {
+            Topic topic = Topic.of(item.charAt(0));
+            if (topic == null) {
+                log.warn("dispatch: unknown invalidation {}", item);
+                continue;
+            }
+            String key = item.substring(1);
+            for (Consumer<String> h : handlers.get(topic)) {
+                try {
+                    h.accept(key);
+                } catch (RuntimeException e) {
+                    log.warn("dispatch: handler failed for {}: {}", item, e.toString());
+                }
+            }
+        }
+        if (received != null) {
+            received.increment(items.size());
+        }
+        log.debug("dispatch: applied {} invalidations", items.size());
+    }
+
+    private void flushAll() {
+        log.info("flushAll: flushing {} caches after reconnect", flushHandlers.size());
+        for (Runnable r : flushHandlers) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                log.warn("flushAll: flush failed: {}", e.toString());
+            }
+        }
+        if (flushes != null) {
+            flushes.increment();
+        }
+    }
+
+    private void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /** Keys published by one transaction, sent on its connection just before it commits. */
+    private final class Batch implements TransactionSynchronization {
+        final LinkedHashSet<String> items = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!items.isEmpty()) {
+                send(items);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationBus.this);
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.ajayprem.habittracker.service;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ajayprem.habittracker.util.LruCache;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class JwtService {
@@ -20,50 +33,97 @@ public class JwtService {
 
     private static final String SECRET_KEY = "your-secret-key-change-this-to-a-long-random-string";
 
-    public String generateToken(Long userId, String email) {
+    public static final long TOKEN_TTL_MS = 604800000; // 7 days
+
+    // the key and parser are immutable and thread-safe, so build them once
+    private final Key signKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signKey).build();
+
+    // token digest -> verified claims, so a token's signature is checked once per expiry window
+    private final LruCache<TokenDigest, VerifiedToken> verified;
+
+    public record VerifiedToken(Long userId, String tokenId, long issuedAtMillis, long expiresAtMillis) {
+    }
+
+    private record TokenDigest(long hi, long lo) {
+    }
+
+    public JwtService(@Value("${app.auth.token-cache.max-entries:50000}") int maxEntries) {
+        this.verified = new LruCache<>(maxEntries);
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.cache.hits", verified, LruCache::hits).register(registry);
+        FunctionCounter.builder("auth.token.cache.misses", verified, LruCache::misses).register(registry);
+        Gauge.builder("auth.token.cache.size", verified, LruCache::size).register(registry);
+    }
+
+    public String generateToken(Long userId, String email, String tokenId, Instant expiresAt) {
         log.info("generateToken: userId={} email={}", userId, email);
         return Jwts.builder()
+                .setId(tokenId)
                 .setSubject(String.valueOf(userId))
                 .claim("email", email)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 604800000)) // 7 days
-                .signWith(getSignKey(), SignatureAlgorithm.HS256)
+                .setExpiration(Date.from(expiresAt))
+                .signWith(signKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Key getSignKey() {
-        // This is if you want to Base64 encode your key
-        byte[] keyBytes = SECRET_KEY.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
-    public Long extractUserId(String token) {
+    /**
+     * Verify the token's signature and expiry once and return its subject, or
+     * null if the token is invalid or expired. Later calls with the same token
+     * are answered from the cache until the token expires.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        TokenDigest digest = digest(token);
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAtMillis() > System.currentTimeMillis()) {
+                return cached;
+            }
+            verified.remove(digest);
+            log.debug("verify: cached token expired");
+            return null;
+        }
         try {
-            Long id = Long.valueOf(extractAllClaims(token).getSubject());
-            log.debug("extractUserId: success id={}", id);
-            return id;
-        } catch (Exception e) {
-            log.warn("extractUserId: failed to extract user id", e);
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date exp = claims.getExpiration();
+            if (exp == null || !exp.after(new Date())) {
+                return null;
+            }
+            Date iat = claims.getIssuedAt();
+            VerifiedToken v = new VerifiedToken(Long.valueOf(claims.getSubject()), claims.getId(),
+                    iat == null ? 0 : iat.getTime(), exp.getTime());
+            verified.put(digest, v);
+            log.debug("verify: success id={}", v.userId());
+            return v;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("verify: token validation failed: {}", e.getMessage());
             return null;
         }
     }
 
+    public Long extractUserId(String token) {
+        VerifiedToken v = verify(token);
+        return v == null ? null : v.userId();
+    }
+
     public boolean isTokenValid(String token) {
-        try {
-            boolean valid = extractAllClaims(token).getExpiration().after(new Date());
-            log.debug("isTokenValid: {}", valid);
-            return valid;
-        } catch (Exception e) {
-            log.warn("isTokenValid: token validation failed", e);
-            return false;
-        }
+        return verify(token) != null;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static TokenDigest digest(String token) {
+        try {
+            byte[] sha = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buf = ByteBuffer.wrap(sha);
+            return new TokenDigest(buf.getLong(), buf.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
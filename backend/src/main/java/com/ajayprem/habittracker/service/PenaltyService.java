@@ -7,14 +7,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ajayprem.habittracker.dto.PenaltyDto;
 import com.ajayprem.habittracker.dto.PenaltySummaryDto;
 import com.ajayprem.habittracker.dto.UserOwedDto;
 import com.ajayprem.habittracker.model.Penalty;
+import com.ajayprem.habittracker.model.User;
 import com.ajayprem.habittracker.repository.PenaltyRepository;
+import com.ajayprem.habittracker.repository.PenaltyRow;
+import com.ajayprem.habittracker.util.DateUtils;
+
+import io.micrometer.core.annotation.Timed;
 
 @Service
+@Timed("service.invocations")
 public class PenaltyService {
 
     private static final Logger log = LoggerFactory.getLogger(PenaltyService.class);
@@ -22,26 +29,38 @@ public class PenaltyService {
     @Autowired
     private PenaltyRepository penaltyRepository;
 
-    public List<Penalty> getPenaltiesEntities(Long userId) {
-        log.info("getPenaltiesEntities: userId={}", userId);
-        return penaltyRepository.findByFromUserIdOrToUserId(userId, userId);
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    /** Penalties from or to the user, with both users' names, in a single query. */
+    public List<PenaltyRow> getPenaltyRows(Long userId) {
+        log.info("getPenaltyRows: userId={}", userId);
+        return penaltyRepository.findRowsByUserId(userId);
     }
 
+    @Transactional(readOnly = true)
     public PenaltySummaryDto getPenaltySummary(Long userId) {
         log.info("getPenaltySummary: uid={}", userId);
-        List<Penalty> list = getPenaltiesEntities(userId);
+        return summarize(userId, getPenaltyRows(userId));
+    }
+
+    /** Build the summary from the user's penalties however they were loaded. */
+    public PenaltySummaryDto summarize(Long userId, List<PenaltyRow> list) {
         List<PenaltyDto> penalty = new ArrayList<>();
         Map<String, UserOwedDto> paymentMap = new HashMap<>();
         double totalOwed = 0, totalReceived = 0;
-        for (Penalty p : list) {
+        for (PenaltyRow p : list) {
             PenaltyDto dto = getPenaltyDto(p);
-            if (dto.getFromUserId() == userId) {
-                paymentMap.computeIfAbsent(dto.getToUser(), x -> new UserOwedDto(p.getToUser().getId(),
-                        p.getToUser().getName(), p.getToUser().getEmail(), 0.0)).addAmount(dto.getAmount());
+            if (Objects.equals(dto.getFromUserId(), userId)) {
+                paymentMap.computeIfAbsent(dto.getToUser(), x -> new UserOwedDto(p.toUserId(),
+                        p.toUserName(), p.toUserEmail(), 0.0)).addAmount(dto.getAmount());
                 totalOwed += dto.getAmount();
             } else {
-                paymentMap.computeIfAbsent(dto.getFromUser(), x -> new UserOwedDto(p.getFromUser().getId(),
-                        p.getFromUser().getName(), p.getFromUser().getEmail(), 0.0)).addAmount(-dto.getAmount());
+                paymentMap.computeIfAbsent(dto.getFromUser(), x -> new UserOwedDto(p.fromUserId(),
+                        p.fromUserName(), p.fromUserEmail(), 0.0)).addAmount(-dto.getAmount());
                 totalReceived += dto.getAmount();
             }
             penalty.add(dto);
@@ -57,28 +76,41 @@ public class PenaltyService {
         return out;
     }
 
-    private static PenaltyDto getPenaltyDto(Penalty p) {
+    public static PenaltyDto getPenaltyDto(Penalty p) {
+        User from = p.getFromUser();
+        User to = p.getToUser();
+        return getPenaltyDto(new PenaltyRow(p.getId(), p.getType(), p.getTask() != null ? p.getTask().getId() : null,
+                from != null ? from.getId() : null, from != null ? from.getName() : null,
+                from != null ? from.getEmail() : null, to != null ? to.getId() : null,
+                to != null ? to.getName() : null, to != null ? to.getEmail() : null, p.getAmount(), p.getReason(),
+                p.getCreatedAt(), p.getPeriodKey()));
+    }
+
+    public static PenaltyDto getPenaltyDto(PenaltyRow p) {
         PenaltyDto dto = new PenaltyDto();
-        dto.setId(String.valueOf(p.getId()));
-        dto.setType(p.getType());
-        dto.setTaskId(p.getTask() != null ? String.valueOf(p.getTask().getId()) : null);
-        dto.setFromUser(p.getFromUser() != null ? String.valueOf(p.getFromUser().getName()) : null);
-        dto.setFromUserId(p.getFromUser() != null ? p.getFromUser().getId() : null);
-        dto.setToUser(p.getToUser() != null ? String.valueOf(p.getToUser().getName()) : null);
-        dto.setToUserId(p.getToUser() != null ? p.getToUser().getId() : null);
-        dto.setAmount(p.getAmount());
-        dto.setReason(p.getReason());
-        dto.setCreatedAt(p.getCreatedAt());
-        dto.setPeriodKey(p.getPeriodKey());
+        dto.setId(String.valueOf(p.id()));
+        dto.setType(p.type());
+        dto.setTaskId(p.taskId() != null ? String.valueOf(p.taskId()) : null);
+        dto.setFromUser(p.fromUserId() != null ? String.valueOf(p.fromUserName()) : null);
+        dto.setFromUserId(p.fromUserId());
+        dto.setToUser(p.toUserId() != null ? String.valueOf(p.toUserName()) : null);
+        dto.setToUserId(p.toUserId());
+        dto.setAmount(p.amount());
+        dto.setReason(p.reason());
+        dto.setCreatedAt(DateUtils.format(p.createdAt()));
+        dto.setPeriodKey(p.periodKey());
         return dto;
     }
 
+    @Transactional
     public boolean removePenalties(Long fromUserId, Long toUserId) {
         try {
 
            List<Penalty> existing = penaltyRepository.findByFromUserIdAndToUserId(fromUserId, toUserId);
                         for (Penalty penalty : existing) {
                             penaltyRepository.delete(penalty);
+                            resourceVersions.penaltyChanged(penalty);
+                            changeLog.penalty(penalty, true);
                             log.info("removePenalties: removed penalty fromUserId={} toUserId={}", fromUserId, toUserId);
                         }
             return true;
@@ -0,0 +1,65 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.PenaltySummaryDto;
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.repository.ChallengeReadRepository;
+import com.ajayprem.habittracker.repository.PenaltyReadRepository;
+import com.ajayprem.habittracker.repository.TaskReadRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * The list reads of {@link TaskService}, {@link ChallengeService} and
+ * {@link PenaltyService} over R2DBC. No thread waits on the database; the
+ * rows are mapped with the same code as the JPA path, so both produce the
+ * same JSON.
+ */
+@Service
+@ConditionalOnProperty(name = "app.reactive-reads.enabled", havingValue = "true")
+public class ReactiveReadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadService.class);
+
+    @Autowired
+    private TaskReadRepository taskReadRepository;
+
+    @Autowired
+    private ChallengeReadRepository challengeReadRepository;
+
+    @Autowired
+    private PenaltyReadRepository penaltyReadRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    @Autowired
+    private PenaltyService penaltyService;
+
+    public Mono<List<TaskDto>> getTasks(Long uid) {
+        log.info("getTasks: uid={}", uid);
+        return taskReadRepository.findByUserId(uid).map(list -> list.stream().map(taskService::toDto).toList());
+    }
+
+    public Mono<List<ChallengeDto>> getChallenges(Long uid) {
+        log.info("getChallenges: uid={}", uid);
+        return challengeReadRepository.findVisibleTo(uid)
+                .map(list -> list.stream().map(challengeService::toDto).toList());
+    }
+
+    public Mono<PenaltySummaryDto> getPenaltySummary(Long uid) {
+        log.info("getPenaltySummary: uid={}", uid);
+        return penaltyReadRepository.findByFromUserIdOrToUserId(uid).map(list -> penaltyService.summarize(uid, list));
+    }
+}
@@ -0,0 +1,139 @@
+package com.ajayprem.habittracker.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.config.StreamedListConverter;
+import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.StreamedList;
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.service.ResourceVersions.Resource;
+import com.ajayprem.habittracker.util.WeightedLruCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serialized task and challenge list responses per user. An entry records the
+ * {@link ResourceVersions} counter it was built at and is used only while the
+ * counter is unchanged, so every mutation that already bumps the counter
+ * (task and challenge writes, the penalty sweep closing challenges)
+ * invalidates it without any extra hook. Entries also expire at midnight
+ * because the challenge DTOs carry a date computed from today.
+ *
+ * The cache is bounded by total bytes and evicts least recently used lists.
+ * Concurrent misses for the same list share one load.
+ */
+@Component
+public class ReadModelCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadModelCache.class);
+
+    // rough per-entry cost of the key, entry record, array header and map node
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private record Key(long userId, Resource resource) {
+    }
+
+    private record Entry(long version, long day, byte[] json) {
+    }
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private StreamedListConverter streamedListConverter;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    private final WeightedLruCache<Key, Entry> entries;
+    private final Map<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    public ReadModelCache(@Value("${app.readmodel.max-bytes:67108864}") long maxBytes) {
+        this.entries = new WeightedLruCache<>(maxBytes, e -> e.json().length + ENTRY_OVERHEAD);
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("readmodel.cache.hits", entries, WeightedLruCache::hits).register(registry);
+        FunctionCounter.builder("readmodel.cache.misses", entries, WeightedLruCache::misses).register(registry);
+        FunctionCounter.builder("readmodel.cache.evictions", entries, WeightedLruCache::evictions).register(registry);
+        Gauge.builder("readmodel.cache.size", entries, WeightedLruCache::size).register(registry);
+        Gauge.builder("readmodel.cache.bytes", entries, WeightedLruCache::weight).baseUnit("bytes").register(registry);
+    }
+
+    /** The body of GET /api/tasks for the user, as JSON bytes. */
+    public byte[] tasks(Long uid) {
+        return get(uid, Resource.TASKS, () -> StreamedList.of("tasks", taskService.getTasks(uid), TaskDto.class));
+    }
+
+    /** The body of GET /api/challenges for the user, as JSON bytes. */
+    public byte[] challenges(Long uid) {
+        return get(uid, Resource.CHALLENGES,
+                () -> StreamedList.of("challenges", challengeService.getChallenges(uid), ChallengeDto.class));
+    }
+
+    private byte[] get(Long uid, Resource resource, Supplier<StreamedList<?>> loader) {
+        Key key = new Key(uid, resource);
+        // read the version before the data, so a write during the load leaves the entry already stale
+        long version = resourceVersions.current(uid, resource);
+        long day = LocalDate.now().toEpochDay();
+        Entry e = entries.get(key);
+        if (e != null && e.version() == version && e.day() == day) {
+            return e.json();
+        }
+
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                Entry shared = running.join();
+                if (shared.version() >= version) {
+                    return shared.json();
+                }
+            } catch (CompletionException ex) {
+                // the other load failed; fall through and try ourselves
+            }
+            return load(key, version, day, loader).json();
+        }
+        try {
+            Entry loaded = load(key, version, day, loader);
+            mine.complete(loaded);
+            return loaded.json();
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private Entry load(Key key, long version, long day, Supplier<StreamedList<?>> loader) {
+        try {
+            Entry e = new Entry(version, day, streamedListConverter.toBytes(loader.get()));
+            entries.put(key, e);
+            log.debug("load: userId={} resource={} version={} bytes={}", key.userId(), key.resource(), version,
+                    e.json().length);
+            return e;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers which users changed something recently, so their reads can stay on
+ * the primary until the replicas have caught up with the change.
+ *
+ * A user is marked whenever one of their resource versions moves, locally or
+ * on another instance, which covers both their own writes and writes other
+ * users make to their lists. The mark lasts for app.replicas.read-your-writes-ms.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadYourWrites.class);
+
+    @Value("${app.replicas.read-your-writes-ms:5000}")
+    private long windowMs;
+
+    private final Map<Long, Long> lastWrite = new ConcurrentHashMap<>();
+    // reads running off the request thread (the dashboard's forks) say whose they are here
+    private final ThreadLocal<Long> reader = new ThreadLocal<>();
+
+    public void recordWrite(Long userId) {
+        if (userId != null) {
+            lastWrite.put(userId, System.nanoTime());
+        }
+    }
+
+    /** True if the user whose read is running on this thread wrote within the window. */
+    public boolean currentReaderMustUsePrimary() {
+        Long userId = currentReader();
+        if (userId == null) {
+            return false;
+        }
+        Long at = lastWrite.get(userId);
+        return at != null && System.nanoTime() - at < TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    /** Run a read on behalf of the user from a thread that has no security context. */
+    public <T> T readingAs(Long userId, Supplier<T> read) {
+        Long previous = reader.get();
+        reader.set(userId);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                reader.remove();
+            } else {
+                reader.set(previous);
+            }
+        }
+    }
+
+    private Long currentReader() {
+        Long userId = reader.get();
+        if (userId != null) {
+            return userId;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof Long id ? id : null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.replicas.read-your-writes-ms:5000}")
+    public void prune() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMs);
+        int before = lastWrite.size();
+        lastWrite.values().removeIf(at -> at - cutoff < 0);
+        log.debug("prune: tracked={} removed={}", lastWrite.size(), before - lastWrite.size());
+    }
+}
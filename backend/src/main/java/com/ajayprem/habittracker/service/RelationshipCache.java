@@ -0,0 +1,144 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.repository.FriendRequestRepository;
+import com.ajayprem.habittracker.repository.FriendshipRepository;
+import com.ajayprem.habittracker.util.AfterCommit;
+import com.ajayprem.habittracker.util.LongHashSet;
+import com.ajayprem.habittracker.util.LruCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-user "relationship state": the ids of the user, their friends and every
+ * user with a pending request in either direction. Friend search uses it to
+ * filter results without querying friends or requests.
+ *
+ * Cached sets are immutable snapshots; mutations replace them copy-on-write.
+ * Mutations are applied once the changing transaction commits, so a rollback
+ * leaves the cache alone and a load that read the old rows is never kept.
+ */
+@Component
+public class RelationshipCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RelationshipCache.class);
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    private final LruCache<Long, LongHashSet> cache;
+
+    // bumped on every mutation so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public RelationshipCache(@Value("${app.friends.relationship-cache.max-users:10000}") int maxUsers) {
+        this.cache = new LruCache<>(maxUsers);
+    }
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        invalidationBus.subscribe(InvalidationBus.Topic.RELATIONS, this::onRemoteChange);
+        invalidationBus.onFlush(this::invalidateAll);
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("friends.relationship.cache.hits", cache, LruCache::hits).register(registry);
+        FunctionCounter.builder("friends.relationship.cache.misses", cache, LruCache::misses).register(registry);
+        FunctionCounter.builder("friends.relationship.cache.evictions", cache, LruCache::evictions).register(registry);
+        Gauge.builder("friends.relationship.cache.size", cache, LruCache::size).register(registry);
+        Gauge.builder("friends.relationship.cache.hit.ratio", cache, LruCache::hitRatio).register(registry);
+    }
+
+    /**
+     * Ids the user must not see in friend search: themselves, their friends and
+     * anyone they have a pending request with. The returned set must not be
+     * modified.
+     */
+    public LongHashSet exclusionsFor(Long uid) {
+        LongHashSet cached = cache.get(uid);
+        if (cached != null) {
+            return cached;
+        }
+        long gen = generation.get();
+        LongHashSet loaded = new LongHashSet();
+        loaded.add(uid);
+        for (Long id : friendshipRepository.findFriendIds(uid)) {
+            loaded.add(id);
+        }
+        for (Long id : friendRequestRepository.findToUserIdsByFromUserId(uid)) {
+            loaded.add(id);
+        }
+        for (Long id : friendRequestRepository.findFromUserIdsByToUserId(uid)) {
+            loaded.add(id);
+        }
+        if (generation.get() == gen) {
+            cache.put(uid, loaded);
+        }
+        log.debug("exclusionsFor: loaded {} ids for uid={}", loaded.size(), uid);
+        return loaded;
+    }
+
+    /** A request was sent or accepted: each user now excludes the other. */
+    public void related(Long a, Long b) {
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.updateIfPresent(a, s -> with(s, b));
+            cache.updateIfPresent(b, s -> with(s, a));
+        });
+        invalidationBus.publish(InvalidationBus.Topic.RELATIONS, a + ":" + b);
+    }
+
+    /**
+     * A request was deleted or a friendship removed. Another relationship may
+     * still link the pair, so both entries are dropped and reloaded on demand.
+     */
+    public void unrelated(Long a, Long b) {
+        AfterCommit.run(() -> drop(a, b));
+        invalidationBus.publish(InvalidationBus.Topic.RELATIONS, a + ":" + b);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    // remote changes arrive without knowing what else links the pair, so both entries reload
+    private void drop(Long a, Long b) {
+        generation.incrementAndGet();
+        cache.remove(a);
+        cache.remove(b);
+    }
+
+    private void onRemoteChange(String key) {
+        int sep = key.indexOf(':');
+        if (sep > 0) {
+            drop(Long.valueOf(key.substring(0, sep)), Long.valueOf(key.substring(sep + 1)));
+        }
+    }
+
+    private static LongHashSet with(LongHashSet s, long id) {
+        if (s.contains(id)) {
+            return s;
+        }
+        LongHashSet copy = s.copy();
+        copy.add(id);
+        return copy;
+    }
+}
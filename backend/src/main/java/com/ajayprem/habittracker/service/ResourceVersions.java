@@ -0,0 +1,264 @@
+package com.ajayprem.habittracker.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ajayprem.habittracker.model.Penalty;
+import com.ajayprem.habittracker.repository.ResourceVersionRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-user version counters for the list endpoints. Every service method that
+ * changes what a user's list would return bumps the counter for that user, and
+ * the controllers turn the counter into an ETag so a client that already holds
+ * the current list gets a 304 without any query being run.
+ *
+ * The counters are rows in resource_version, moved just before the changing
+ * transaction commits, so every instance behind the load balancer derives the
+ * same ETag from the same committed data. Each instance keeps the values it
+ * has seen in memory: a user's row is read once, on first use, and after that
+ * the new values arrive with the bumps relayed through the
+ * {@link InvalidationBus}. Values only move forward, so a late read and a
+ * relayed bump can arrive in either order. If the relay may have missed some,
+ * everything is forgotten and read again.
+ *
+ * Task and challenge bodies also depend on the date (completion rates, the
+ * first uncompleted period), so their ETags carry today's epoch day and turn
+ * over at midnight even when nothing was written.
+ */
+@Component
+public class ResourceVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceVersions.class);
+
+    public enum Resource {
+        TASKS("t", true),
+        CHALLENGES("c", true),
+        FRIENDS("f", false),
+        PENALTIES("p", false);
+
+        final String tag;
+        /** Whether the body is computed against today's date. */
+        final boolean daily;
+
+        Resource(String tag, boolean daily) {
+            this.tag = tag;
+            this.daily = daily;
+        }
+
+        static Resource of(String tag) {
+            for (Resource r : values()) {
+                if (r.tag.equals(tag)) {
+                    return r;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Lets clients keep the list but makes them revalidate it on every use. */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private record Key(Long userId, Resource resource) {
+        // the order rows are locked in, the same for every transaction
+        static final Comparator<Key> ORDER = Comparator.comparing(Key::userId).thenComparing(Key::resource);
+    }
+
+    // indexed by Resource.ordinal(); -1 until read from the table
+    private final Map<Long, AtomicLongArray> versions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        invalidationBus.subscribe(InvalidationBus.Topic.VERSIONS, this::onRemoteBump);
+        invalidationBus.onFlush(this::forgetAll);
+    }
+
+    /**
+     * The user's committed version of the resource. The first call for a user
+     * reads the table, outside any transaction, so from the primary.
+     */
+    public long current(Long userId, Resource resource) {
+        AtomicLongArray v = versions.computeIfAbsent(userId, k -> unknown());
+        long current = v.get(resource.ordinal());
+        if (current < 0) {
+            Map<String, Long> stored = resourceVersionRepository.findByUserId(userId);
+            for (Resource r : Resource.values()) {
+                v.accumulateAndGet(r.ordinal(), stored.getOrDefault(r.tag, 0L), Math::max);
+            }
+            current = v.get(resource.ordinal());
+        }
+        return current;
+    }
+
+    /** Strong ETag, quoted, for the user's current version of the resource. */
+    public String etag(Long userId, Resource resource) {
+        return etag(userId, new Resource[] { resource });
+    }
+
+    /** ETag covering several resources at once, e.g. for the dashboard. */
+    public String etag(Long userId, Resource... resources) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (Resource r : resources) {
+            sb.append(r.tag);
+        }
+        sb.append('-').append(userId);
+        boolean daily = false;
+        for (Resource r : resources) {
+            sb.append('-').append(current(userId, r));
+            daily |= r.daily;
+        }
+        if (daily) {
+            sb.append('-').append(Long.toString(LocalDate.now().toEpochDay(), 36));
+        }
+        return sb.append('"').toString();
+    }
+
+    /** True if the If-None-Match header value contains the given ETag. */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) {
+                c = c.substring(2);
+            }
+            if (c.equals(etag) || c.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark the user's resource as changed. Inside a transaction the row is
+     * moved just before commit and the new value is used here only after it,
+     * so a reader can never pair the new version with the old data.
+     */
+    public void bump(Long userId, Resource resource) {
+        if (userId == null) {
+            return;
+        }
+        Key key = new Key(userId, resource);
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive()) {
+            Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                pending = new Pending();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            pending.keys.add(key);
+        } else {
+            increment(List.of(key)).forEach(this::advance);
+        }
+    }
+
+    public void bump(Collection<Long> userIds, Resource resource) {
+        for (Long id : userIds) {
+            bump(id, resource);
+        }
+    }
+
+    /** Bump the penalty list of both users a penalty is between. */
+    public void penaltyChanged(Penalty p) {
+        if (p.getFromUser() != null) {
+            bump(p.getFromUser().getId(), Resource.PENALTIES);
+        }
+        if (p.getToUser() != null) {
+            bump(p.getToUser().getId(), Resource.PENALTIES);
+        }
+    }
+
+    /** Forget every version seen, e.g. when bumps from other instances may have been lost. */
+    public void forgetAll() {
+        int users = versions.size();
+        versions.clear();
+        log.info("forgetAll: users={}", users);
+    }
+
+    /** Move the rows in key order and tell the other instances their new values. */
+    private Map<Key, Long> increment(Collection<Key> keys) {
+        Map<Key, Long> moved = new LinkedHashMap<>();
+        List<String> relayed = new ArrayList<>(keys.size());
+        for (Key k : keys) {
+            long v = resourceVersionRepository.increment(k.userId(), k.resource().tag);
+            moved.put(k, v);
+            relayed.add(k.userId() + ":" + k.resource().tag + ":" + v);
+        }
+        invalidationBus.publishNow(InvalidationBus.Topic.VERSIONS, relayed);
+        return moved;
+    }
+
+    private void onRemoteBump(String key) {
+        String[] parts = key.split(":");
+        Resource r = parts.length == 3 ? Resource.of(parts[1]) : null;
+        if (r == null) {
+            return;
+        }
+        advance(new Key(Long.valueOf(parts[0]), r), Long.valueOf(parts[2]));
+    }
+
+    private void advance(Key key, long version) {
+        long v = versions.computeIfAbsent(key.userId(), k -> unknown())
+                .accumulateAndGet(key.resource().ordinal(), version, Math::max);
+        // the user's next reads must see this change, so keep them off the replicas for a while
+        readYourWrites.recordWrite(key.userId());
+        log.debug("bump: userId={} resource={} version={}", key.userId(), key.resource(), v);
+    }
+
+    private static AtomicLongArray unknown() {
+        AtomicLongArray v = new AtomicLongArray(Resource.values().length);
+        for (int i = 0; i < v.length(); i++) {
+            v.set(i, -1);
+        }
+        return v;
+    }
+
+    /** Bumps made by one transaction, written just before it commits. */
+    private final class Pending implements TransactionSynchronization {
+        final TreeSet<Key> keys = new TreeSet<>(Key.ORDER);
+        Map<Key, Long> moved = Map.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            moved = increment(keys);
+        }
+
+        @Override
+        public void afterCommit() {
+            moved.forEach(ResourceVersions.this::advance);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ResourceVersions.this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ajayprem.habittracker.service;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.model.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Applies invalidations from other instances to the Hibernate second-level
+ * cache. Hibernate only invalidates its regions for writes made through this
+ * instance, so without this a cached User or friend list elsewhere would stay
+ * stale until its TTL ran out. Writes made here with a bulk update bypass
+ * the entity, so they evict the cached copy through {@link #evictUser}.
+ */
+@Component
+public class SecondLevelCacheInvalidation {
+
+    private static final Logger log = LoggerFactory.getLogger(SecondLevelCacheInvalidation.class);
+
+    private static final String FRIENDS_REGION = "friends";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    private Cache cache;
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        invalidationBus.subscribe(InvalidationBus.Topic.USERS,
+                key -> cache.evictEntityData(User.class, Long.valueOf(key)));
+        invalidationBus.subscribe(InvalidationBus.Topic.FRIENDSHIPS, key -> cache.evictQueryRegion(FRIENDS_REGION));
+        invalidationBus.onFlush(() -> {
+            cache.evictAllRegions();
+            log.info("flush: evicted all second-level cache regions");
+        });
+    }
+
+    /** Drop this instance's cached copy of the user after a write that bypassed the entity. */
+    public void evictUser(Long id) {
+        cache.evictEntityData(User.class, id);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ajayprem.habittracker.service;
+
+import java.time.LocalDate;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ajayprem.habittracker.model.DailyRollup;
+import com.ajayprem.habittracker.repository.DailyRollupRepository;
+import com.ajayprem.habittracker.util.DateUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps the per-user daily rollup and serves the year heatmap from it.
+ *
+ * Completions are counted as they are added and removed, in the same
+ * transaction; each of those also recounts what the user had due that day. A
+ * scheduled refresh recounts the due items of the last two days for everyone,
+ * so days without any completion still get their due count.
+ */
+@Service
+public class StatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsService.class);
+
+    /** One byte per day of the year, January 1st first; the last is unused outside leap years. */
+    public static final int HEATMAP_DAYS = 366;
+
+    /** Bytes per day in the heatmap: completed, then due. */
+    public static final int HEATMAP_DAY_BYTES = 2;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    private SweepMetrics rollupSweep;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        rollupSweep = new SweepMetrics("daily-rollup", registry);
+    }
+
+    /** Count a completion key being added (delta 1) or removed (delta -1) for the user. */
+    @Transactional
+    public void completionChanged(Long uid, String key, int delta) {
+        LocalDate day = DateUtils.parseToLocalDate(key);
+        if (uid == null || day == null) {
+            log.warn("completionChanged: not counted uid={} key={}", uid, key);
+            return;
+        }
+        dailyRollupRepository.addCompleted(uid, day, delta);
+    }
+
+    /**
+     * The user's year as {@value #HEATMAP_DAYS} pairs of bytes, one pair per
+     * day: completions, then due items, each unsigned and capped at 255. Null
+     * for a year outside 1..9999.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getHeatmap(Long uid, int year) {
+        log.info("getHeatmap: uid={} year={}", uid, year);
+        if (year < 1 || year > 9999) {
+            return null;
+        }
+        LocalDate from = LocalDate.of(year, 1, 1);
+        byte[] days = new byte[HEATMAP_DAYS * HEATMAP_DAY_BYTES];
+        for (DailyRollup r : dailyRollupRepository.findRange(uid, from, from.plusYears(1).minusDays(1))) {
+            int at = (r.getId().getDay().getDayOfYear() - 1) * HEATMAP_DAY_BYTES;
+            days[at] = (byte) Math.min(Math.max(r.getCompleted(), 0), 255);
+            days[at + 1] = (byte) Math.min(Math.max(r.getDue(), 0), 255);
+        }
+        return days;
+    }
+
+    /**
+     * Recount due items for yesterday and today, and for the first day of
+     * their weeks and months where weekly and monthly items are counted.
+     */
+    @Scheduled(cron = "${app.stats.rollup-cron:0 5 * * * *}")
+    @Transactional
+    public void refreshDue() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (LocalDate d : new LocalDate[] { today.minusDays(1), today }) {
+            days.add(d);
+            days.add(DateUtils.periodKeyFor(d, "weekly"));
+            days.add(DateUtils.periodKeyFor(d, "monthly"));
+        }
+        int rows = 0;
+        for (LocalDate d : days) {
+            rows += dailyRollupRepository.refreshDue(d);
+        }
+        rollupSweep.record(start, rows, 0);
+        log.info("refreshDue: days={} rows={}", days, rows);
+    }
+}
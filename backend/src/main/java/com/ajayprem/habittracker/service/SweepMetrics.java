@@ -0,0 +1,37 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Gauges describing the last run of one scheduled sweep, tagged with its
+ * name: how long it took, how many rows it looked at and how many penalties
+ * it created. The sweep's own timer (service.invocations) has the history;
+ * these show at a glance what the latest run did.
+ */
+class SweepMetrics {
+
+    private final AtomicLong durationNanos = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong penaltiesCreated = new AtomicLong();
+
+    SweepMetrics(String sweep, MeterRegistry registry) {
+        TimeGauge.builder("scheduler.sweep.duration", durationNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .tag("sweep", sweep).description("Duration of the sweep's last run").register(registry);
+        Gauge.builder("scheduler.sweep.scanned", scanned, AtomicLong::get)
+                .tag("sweep", sweep).description("Rows the sweep's last run looked at").register(registry);
+        Gauge.builder("scheduler.sweep.penalties", penaltiesCreated, AtomicLong::get)
+                .tag("sweep", sweep).description("Penalties the sweep's last run created").register(registry);
+    }
+
+    /** Record a finished run that started at startNanos (System.nanoTime). */
+    void record(long startNanos, long scannedRows, long penalties) {
+        durationNanos.set(System.nanoTime() - startNanos);
+        scanned.set(scannedRows);
+        penaltiesCreated.set(penalties);
+    }
+}
@@ -0,0 +1,242 @@
+package com.ajayprem.habittracker.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ajayprem.habittracker.dto.ChallengeDto;
+import com.ajayprem.habittracker.dto.PenaltyDto;
+import com.ajayprem.habittracker.dto.SyncResponse;
+import com.ajayprem.habittracker.dto.SyncResponse.Tombstone;
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.dto.UserProfileDto;
+import com.ajayprem.habittracker.model.ChangeLogEntry;
+import com.ajayprem.habittracker.model.Challenge;
+import com.ajayprem.habittracker.model.Penalty;
+import com.ajayprem.habittracker.model.Task;
+import com.ajayprem.habittracker.repository.ChallengeRepository;
+import com.ajayprem.habittracker.repository.ChangeLogRepository;
+import com.ajayprem.habittracker.repository.PenaltyRepository;
+import com.ajayprem.habittracker.repository.PenaltyRow;
+import com.ajayprem.habittracker.repository.TaskRepository;
+import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.repository.UserSummary;
+import com.ajayprem.habittracker.service.ChangeLog.Kind;
+
+/**
+ * Serves delta sync from the change log. A token is the id of the last log
+ * entry the client has applied; a sync returns the latest state of every
+ * entity logged after it, or a tombstone if the entity is gone.
+ *
+ * Log ids are handed out at insert time but become visible at commit, so a
+ * slow transaction can commit an id lower than one a client has already seen.
+ * The token therefore only advances past entries older than the settle
+ * window; newer ones are sent again on the next sync, which is harmless since
+ * applying an entry twice gives the same state.
+ */
+@Service
+public class SyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncService.class);
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private PenaltyRepository penaltyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private PenaltyService penaltyService;
+
+    @Value("${app.sync.max-changes:500}")
+    private int maxChanges;
+
+    @Value("${app.sync.settle-ms:5000}")
+    private long settleMs;
+
+    @Value("${app.sync.retention-days:30}")
+    private int retentionDays;
+
+    // lowest id still in the log; tokens below it may have missed pruned entries
+    private final AtomicLong floor = new AtomicLong();
+
+    @Transactional(readOnly = true)
+    public SyncResponse sync(Long uid, String since) {
+        Long from = parseToken(since);
+        if (from == null || from + 1 < floor.get()) {
+            log.info("sync: uid={} since={} full reset", uid, since);
+            return snapshot(uid);
+        }
+
+        List<ChangeLogEntry> entries = changeLogRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(uid, from,
+                Limit.of(maxChanges + 1));
+        if (entries.isEmpty()) {
+            return new SyncResponse(since, false, false, null, null, null, null, null);
+        }
+        boolean truncated = entries.size() > maxChanges;
+        if (truncated) {
+            entries = entries.subList(0, maxChanges);
+        }
+
+        Instant settled = Instant.now().minusMillis(settleMs);
+        long token = from;
+        for (ChangeLogEntry e : entries) {
+            if (e.getCreatedAt().isAfter(settled)) {
+                break;
+            }
+            token = e.getId();
+        }
+
+        // later entries for the same entity supersede earlier ones
+        Map<Kind, Map<Long, Boolean>> latest = new EnumMap<>(Kind.class);
+        for (ChangeLogEntry e : entries) {
+            Kind kind = Kind.of(e.getResource());
+            if (kind != null) {
+                Map<Long, Boolean> byId = latest.computeIfAbsent(kind, k -> new LinkedHashMap<>());
+                byId.remove(e.getEntityId());
+                byId.put(e.getEntityId(), e.isDeleted());
+            }
+        }
+
+        List<Tombstone> deleted = new ArrayList<>();
+        List<TaskDto> tasks = new ArrayList<>();
+        for (Task t : taskRepository.findAllById(live(latest, Kind.TASK, deleted))) {
+            if (Objects.equals(t.getUser().getId(), uid)) {
+                tasks.add(taskService.toDto(t));
+            }
+        }
+        List<ChallengeDto> challenges = new ArrayList<>();
+        for (Challenge c : challengeRepository.findAllById(live(latest, Kind.CHALLENGE, deleted))) {
+            challenges.add(challengeService.toDto(c));
+        }
+        List<UserProfileDto> friends = new ArrayList<>();
+        Set<Long> friendIds = live(latest, Kind.FRIEND, deleted);
+        if (!friendIds.isEmpty()) {
+            for (UserSummary f : userRepository.findSummariesByIds(friendIds)) {
+                UserProfileDto d = new UserProfileDto();
+                d.setId(f.getId());
+                d.setName(f.getName());
+                d.setEmail(f.getEmail());
+                friends.add(d);
+            }
+        }
+        List<PenaltyDto> penalties = new ArrayList<>();
+        for (Penalty p : penaltyRepository.findAllById(live(latest, Kind.PENALTY, deleted))) {
+            penalties.add(PenaltyService.getPenaltyDto(p));
+        }
+
+        // an entity logged as changed but no longer found was deleted by a transaction we have not seen yet
+        tombstoneMissing(latest, Kind.TASK, tasks.stream().map(TaskDto::getId).toList(), deleted);
+        tombstoneMissing(latest, Kind.CHALLENGE, challenges.stream().map(ChallengeDto::getId).toList(), deleted);
+        tombstoneMissing(latest, Kind.FRIEND, friends.stream().map(f -> String.valueOf(f.getId())).toList(), deleted);
+        tombstoneMissing(latest, Kind.PENALTY, penalties.stream().map(PenaltyDto::getId).toList(), deleted);
+
+        boolean more = truncated && token > from;
+        log.info("sync: uid={} since={} entries={} token={} more={}", uid, from, entries.size(), token, more);
+        return new SyncResponse(Long.toString(token, 36), false, more, tasks, challenges, friends, penalties,
+                deleted);
+    }
+
+    /** The user's full state, with a token taken before reading it. */
+    private SyncResponse snapshot(Long uid) {
+        ChangeLogEntry last = changeLogRepository.findFirstByUserIdAndCreatedAtLessThanEqualOrderByIdDesc(uid,
+                Instant.now().minusMillis(settleMs));
+        // a user with nothing logged starts at the floor, so the next sync is not treated as stale
+        long token = Math.max(last == null ? 0 : last.getId(), floor.get() - 1);
+        List<PenaltyDto> penalties = new ArrayList<>();
+        for (PenaltyRow p : penaltyService.getPenaltyRows(uid)) {
+            penalties.add(PenaltyService.getPenaltyDto(p));
+        }
+        return new SyncResponse(Long.toString(token, 36), true, false, taskService.getTasks(uid),
+                challengeService.getChallenges(uid), friendService.listFriends(uid), penalties, null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync.prune-ms:3600000}")
+    @Transactional
+    public void prune() {
+        int removed = changeLogRepository.deleteOlderThan(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+        Long min = changeLogRepository.findMinId();
+        floor.set(min == null ? 0 : min);
+        if (removed > 0) {
+            log.info("prune: removed {} change log entries, floor={}", removed, floor.get());
+        }
+    }
+
+    private static Set<Long> live(Map<Kind, Map<Long, Boolean>> latest, Kind kind, List<Tombstone> deleted) {
+        Set<Long> ids = new LinkedHashSet<>();
+        Map<Long, Boolean> byId = latest.get(kind);
+        if (byId == null) {
+            return ids;
+        }
+        for (Map.Entry<Long, Boolean> e : byId.entrySet()) {
+            if (e.getValue()) {
+                deleted.add(new Tombstone(kind.key, String.valueOf(e.getKey())));
+            } else {
+                ids.add(e.getKey());
+            }
+        }
+        return ids;
+    }
+
+    private static void tombstoneMissing(Map<Kind, Map<Long, Boolean>> latest, Kind kind, List<String> found,
+            List<Tombstone> deleted) {
+        Map<Long, Boolean> byId = latest.get(kind);
+        if (byId == null) {
+            return;
+        }
+        Set<String> present = Set.copyOf(found);
+        for (Map.Entry<Long, Boolean> e : byId.entrySet()) {
+            String id = String.valueOf(e.getKey());
+            if (!e.getValue() && !present.contains(id)) {
+                deleted.add(new Tombstone(kind.key, id));
+            }
+        }
+    }
+
+    private static Long parseToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(token, 36);
+            return id < 0 ? null : id;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -23,17 +24,29 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ajayprem.habittracker.dto.PenaltyResult;
 import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.dto.TaskStats;
 import com.ajayprem.habittracker.dto.UserDto;
 import com.ajayprem.habittracker.model.Penalty;
 import com.ajayprem.habittracker.model.Task;
 import com.ajayprem.habittracker.model.User;
+import com.ajayprem.habittracker.repository.CompletionRow;
 import com.ajayprem.habittracker.repository.PenaltyRepository;
+import com.ajayprem.habittracker.repository.TaskRecipientRow;
 import com.ajayprem.habittracker.repository.TaskRepository;
+import com.ajayprem.habittracker.repository.TaskRow;
 import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.service.ResourceVersions.Resource;
+import com.ajayprem.habittracker.util.DateUtils;
+import com.ajayprem.habittracker.util.PeriodCalendar;
 import static com.ajayprem.habittracker.util.DateUtils.periodKeyFor;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
+@Timed("service.invocations")
 public class TaskService {
 
     private static final Logger log = LoggerFactory.getLogger(TaskService.class);
@@ -47,6 +60,26 @@ public class TaskService {
     @Autowired
     private PenaltyRepository penaltyRepository;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private StatsService statsService;
+
+    private SweepMetrics penaltySweep;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        penaltySweep = new SweepMetrics("task-penalties", registry);
+    }
+
+    @Transactional
     public boolean completeTaskForDate(Long uid, String taskIdStr, String dateStr) {
         log.info("completeTaskForDate: uid={} taskId={} date={}", uid, taskIdStr, dateStr);
         Long tid = Long.valueOf(taskIdStr);
@@ -75,17 +108,11 @@ public class TaskService {
         }
 
         // Validate start/end date
-        if (t.getStartDate() != null && !t.getStartDate().isEmpty()) {
-            LocalDate start = LocalDate.parse(t.getStartDate());
-            if (date.isBefore(start)) {
-                return false;
-            }
+        if (t.getStartDate() != null && date.isBefore(t.getStartDate())) {
+            return false;
         }
-        if (t.getEndDate() != null && !t.getEndDate().isEmpty()) {
-            LocalDate end = LocalDate.parse(t.getEndDate());
-            if (date.isAfter(end)) {
-                return false;
-            }
+        if (t.getEndDate() != null && date.isAfter(t.getEndDate())) {
+            return false;
         }
 
         // compute canonical key for the task's period (daily/weekly/monthly)
@@ -94,6 +121,9 @@ public class TaskService {
         if (!t.getCompletedDates().contains(key)) {
             t.getCompletedDates().add(key);
             taskRepository.save(t);
+            statsService.completionChanged(uid, key, 1);
+            resourceVersions.bump(uid, Resource.TASKS);
+            changeLog.changed(uid, ChangeLog.Kind.TASK, tid);
             log.info("completeTaskForDate: added completion key {} for task {} (period={})", key, tid,
                     t.getPeriod());
             // remove any penalties for this task+period (if scheduled job created them)
@@ -101,6 +131,8 @@ public class TaskService {
                 List<Penalty> existing = penaltyRepository.findByTaskIdAndPeriodKey(t.getId(), key);
                 for (Penalty p : existing) {
                     penaltyRepository.delete(p);
+                    resourceVersions.penaltyChanged(p);
+                    changeLog.penalty(p, true);
                     log.info("completeTaskForDate: removed penalty id={} for task {} periodKey={}", p.getId(), tid,
                             key);
                 }
@@ -112,6 +144,7 @@ public class TaskService {
         return true;
     }
 
+    @Transactional
     public boolean uncompleteTaskForDate(Long uid, String taskIdStr, String dateStr) {
         log.info("uncompleteTaskForDate: uid={} taskId={} date={}", uid, taskIdStr, dateStr);
         Long tid = Long.valueOf(taskIdStr);
@@ -137,6 +170,9 @@ public class TaskService {
         if (key != null && t.getCompletedDates().contains(key)) {
             t.getCompletedDates().remove(key);
             taskRepository.save(t);
+            statsService.completionChanged(uid, key, -1);
+            resourceVersions.bump(uid, Resource.TASKS);
+            changeLog.changed(uid, ChangeLog.Kind.TASK, tid);
             log.info("uncompleteTaskForDate: removed key {} for task {} (period={})", key, tid, t.getPeriod());
             return true;
         }
@@ -144,18 +180,19 @@ public class TaskService {
         return false;
     }
 
-    public Map<String, Object> getTaskStats(Long uid, String taskIdStr) {
+    @Transactional(readOnly = true)
+    public TaskStats getTaskStats(Long uid, String taskIdStr) {
         log.info("getTaskStats: uid={} taskId={}", uid, taskIdStr);
         Long tid = Long.valueOf(taskIdStr);
         Optional<Task> ot = taskRepository.findById(tid);
         if (ot.isEmpty()) {
             log.warn("getTaskStats: task not found {}", tid);
-            return Map.of();
+            return null;
         }
         Task t = ot.get();
         if (!Objects.equals(t.getUser().getId(), uid)) {
             log.warn("getTaskStats: user {} not owner of task {}", uid, tid);
-            return Map.of();
+            return null;
         }
         List<String> completedDates = t.getCompletedDates();
 
@@ -169,13 +206,8 @@ public class TaskService {
 
         int totalPenalties = 0; // Optional: implement penalty count if needed
         double penaltyAmount = t.getPenaltyAmount();
-        return Map.of(
-                "totalCompletions", totalCompletions,
-                "currentStreak", currentStreak,
-                "longestStreak", longestStreak,
-                "completionRate", completionRate,
-                "totalPenalties", totalPenalties,
-                "penaltyAmount", penaltyAmount);
+        return new TaskStats(totalCompletions, currentStreak, longestStreak, completionRate, totalPenalties,
+                penaltyAmount);
     }
 
     private LocalDate parseToLocalDate(String s) {
@@ -354,40 +386,20 @@ public class TaskService {
         if (completedDates == null || completedDates.isEmpty()) {
             return 0.0;
         }
-        LocalDate created;
-        String startDate = t.getStartDate();
-        try {
-            created = periodKeyFor(LocalDate.parse(startDate), t.getPeriod());
-        } catch (DateTimeParseException ex) {
-            try {
-                Instant inst = Instant.parse(startDate);
-                created = inst.atZone(ZoneId.systemDefault()).toLocalDate();
-            } catch (Exception e) {
-                created = LocalDate.now();
-            }
-        }
+        // every period from the first one through the current one (or the last, once the task has ended)
         LocalDate today = LocalDate.now();
-        if (t.getEndDate() != null && !t.getEndDate().isEmpty()) {
-            try {
-                LocalDate end = LocalDate.parse(t.getEndDate());
-                if (end.isBefore(today)) {
-                    today = end;
-                }
-            } catch (Exception e) {
-            }
-        }
-        long days = java.time.temporal.ChronoUnit.DAYS.between(created, today) + 1;
-        int expectedCompletions = 1;
-        if ("daily".equalsIgnoreCase(t.getPeriod())) {
-            expectedCompletions = (int) days;
-        } else if ("weekly".equalsIgnoreCase(t.getPeriod())) {
-            expectedCompletions = (int) Math.ceil(days / 7.0);
-        } else if ("monthly".equalsIgnoreCase(t.getPeriod())) {
-            expectedCompletions = (int) Math.ceil(days / 30.0);
+        LocalDate first = t.getStartDate() == null ? today : t.getStartDate();
+        LocalDate last = t.getEndDate() != null && t.getEndDate().isBefore(today) ? t.getEndDate() : today;
+        long expected = PeriodCalendar.periodsThrough(first, last, t.getPeriod());
+        if (expected == 0) {
+            return 0.0;
         }
-        return expectedCompletions > 0 ? (completedDates.size() * 100.0 / expectedCompletions) : 0.0;
+        long from = PeriodCalendar.index(first, t.getPeriod());
+        int done = PeriodCalendar.countCompleted(completedDates, t.getPeriod(), from, from + expected);
+        return done * 100.0 / expected;
     }
 
+    @Transactional
     public TaskDto createTask(Long uid, TaskDto input) {
         log.info("createTask: uid={} title={}", uid, input == null ? null : input.getTitle());
         Optional<User> ou = userRepository.findById(uid);
@@ -419,20 +431,28 @@ public class TaskService {
             }
         }
         t.setStatus(input.getStatus() == null ? "active" : input.getStatus());
-        t.setCreatedAt(input.getCreatedAt() == null ? Instant.now().toString() : input.getCreatedAt());
+        Instant createdAt = DateUtils.parseToInstant(input.getCreatedAt());
+        t.setCreatedAt(createdAt == null ? Instant.now() : createdAt);
         if (input.getCompletedDates() != null) {
             t.setCompletedDates(input.getCompletedDates());
         }
-        t.setStartDate(input.getStartDate());
-        t.setEndDate(input.getEndDate());
+        t.setStartDate(DateUtils.parseToLocalDate(input.getStartDate()));
+        t.setEndDate(DateUtils.parseToLocalDate(input.getEndDate()));
         taskRepository.save(t);
+        // a task can arrive with completions already recorded
+        for (String key : new HashSet<>(t.getCompletedDates())) {
+            statsService.completionChanged(uid, key, 1);
+        }
+        resourceVersions.bump(uid, Resource.TASKS);
+        changeLog.changed(uid, ChangeLog.Kind.TASK, t.getId());
         log.info("createTask: created task id={} for user {}", t.getId(), uid);
         input.setId(String.valueOf(t.getId()));
         input.setUserId(String.valueOf(uid));
         return input;
     }
 
-    public Map<String, Object> applyTaskPenalty(Long uid, String taskIdStr) {
+    @Transactional
+    public PenaltyResult applyTaskPenalty(Long uid, String taskIdStr) {
         log.info("applyTaskPenalty: uid={} taskId={}", uid, taskIdStr);
         Long tid = Long.valueOf(taskIdStr);
         Optional<Task> ot = taskRepository.findById(tid);
@@ -445,7 +465,7 @@ public class TaskService {
         // No penalty configured (personal task)
         if (t.getPenaltyRecipients() == null || t.getPenaltyRecipients().isEmpty() || t.getPenaltyAmount() <= 0) {
             log.info("applyTaskPenalty: no penalty recipients or amount for task {}", tid);
-            return Map.of("success", false, "reason", "no_penalty_configured");
+            return PenaltyResult.notConfigured();
         }
 
         // Split penalty amount among recipients
@@ -460,14 +480,17 @@ public class TaskService {
             p.setToUser(recipient);
             p.setAmount(splitAmount);
             p.setReason("Incomplete task: " + t.getTitle());
-            p.setCreatedAt(Instant.now().toString());
+            p.setCreatedAt(Instant.now());
             penaltyRepository.save(p);
+            resourceVersions.penaltyChanged(p);
+            changeLog.penalty(p, false);
+            eventBus.penaltyCreated(p);
             penaltyIds.add(p.getId());
             log.info("applyTaskPenalty: created penalty id={} toUser={} amount={}", p.getId(), p.getToUser().getId(),
                     p.getAmount());
         }
 
-        return Map.of("success", !penaltyIds.isEmpty(), "penaltyIds", penaltyIds);
+        return PenaltyResult.created(penaltyIds);
     }
 
     /**
@@ -475,6 +498,7 @@ public class TaskService {
      * links).
      * Returns true if deletion was successful.
      */
+    @Transactional
     public boolean deleteTask(Long uid, String taskIdStr) {
         log.info("deleteTask: uid={} taskId={}", uid, taskIdStr);
         Long tid;
@@ -508,6 +532,8 @@ public class TaskService {
                 List<Penalty> existing = penaltyRepository.findByTaskId(t.getId());
                 for (Penalty p : existing) {
                     penaltyRepository.delete(p);
+                    resourceVersions.penaltyChanged(p);
+                    changeLog.penalty(p, true);
                     log.info("deleteTask: removed penalty id={} for task {}", p.getId(), tid);
                 }
             } catch (Exception e) {
@@ -516,6 +542,8 @@ public class TaskService {
 
             // Remove the task itself
             taskRepository.delete(t);
+            resourceVersions.bump(uid, Resource.TASKS);
+            changeLog.deleted(uid, ChangeLog.Kind.TASK, tid);
             log.info("deleteTask: deleted task {}", tid);
             return true;
         } catch (Exception ex) {
@@ -525,39 +553,71 @@ public class TaskService {
     }
 
     // --- Tasks ---
+    /**
+     * The user's tasks in three queries however many there are: the task rows,
+     * then all their recipients, then all their completion keys.
+     */
+    @Transactional(readOnly = true)
     public List<TaskDto> getTasks(Long uid) {
-        List<Task> list = taskRepository.findByUserId(uid);
-        List<TaskDto> out = new ArrayList<>();
-        for (Task t : list) {
-            TaskDto dto = new TaskDto();
-            dto.setId(String.valueOf(t.getId()));
-            dto.setUserId(String.valueOf(t.getUser().getId()));
-            dto.setTitle(t.getTitle());
-            dto.setDescription(t.getDescription());
-            dto.setPeriod(t.getPeriod());
-            dto.setPenaltyAmount(t.getPenaltyAmount());
-
-            // Convert penaltyRecipients list to IDs and DTOs
-            List<String> recipientIds = new ArrayList<>();
-            List<UserDto> recipientDtos = new ArrayList<>();
-            for (User recipient : t.getPenaltyRecipients()) {
-                recipientIds.add(String.valueOf(recipient.getId()));
-                UserDto userDto = new UserDto();
-                userDto.setId(String.valueOf(recipient.getId()));
-                userDto.setName(recipient.getName());
-                recipientDtos.add(userDto);
+        Map<Long, TaskDto> byId = new LinkedHashMap<>();
+        for (TaskRow r : taskRepository.findRowsByUserId(uid)) {
+            byId.put(r.id(), toDto(r));
+        }
+        if (byId.isEmpty()) {
+            return new ArrayList<>();
+        }
+        for (TaskRecipientRow r : taskRepository.findRecipientRowsByUserId(uid)) {
+            TaskDto dto = byId.get(r.taskId());
+            if (dto != null) {
+                addRecipient(dto, r.userId(), r.name());
+            }
+        }
+        for (CompletionRow r : taskRepository.findCompletionRowsByUserId(uid)) {
+            TaskDto dto = byId.get(r.ownerId());
+            if (dto != null) {
+                dto.getCompletedDates().add(r.completedDate());
             }
-            dto.setPenaltyRecipientIds(recipientIds);
-            dto.setRecipientFriends(recipientDtos);
+        }
+        return new ArrayList<>(byId.values());
+    }
 
-            dto.setStatus(t.getStatus());
-            dto.setCompletedDates(t.getCompletedDates());
-            dto.setCreatedAt(t.getCreatedAt());
-            dto.setStartDate(t.getStartDate());
-            dto.setEndDate(t.getEndDate());
-            out.add(dto);
+    public TaskDto toDto(Task t) {
+        TaskDto dto = toDto(new TaskRow(t.getId(), t.getUser().getId(), t.getTitle(), t.getDescription(),
+                t.getPeriod(), t.getPenaltyAmount(), t.getStatus(), t.getCreatedAt(), t.getStartDate(),
+                t.getEndDate()));
+        for (User recipient : t.getPenaltyRecipients()) {
+            addRecipient(dto, recipient.getId(), recipient.getName());
         }
-        return out;
+        // copy so the DTO does not hold on to the lazy collection after the session closes
+        dto.getCompletedDates().addAll(t.getCompletedDates());
+        return dto;
+    }
+
+    /** The DTO for a task row, with empty recipient and completion lists for the caller to fill. */
+    private static TaskDto toDto(TaskRow r) {
+        TaskDto dto = new TaskDto();
+        dto.setId(String.valueOf(r.id()));
+        dto.setUserId(String.valueOf(r.userId()));
+        dto.setTitle(r.title());
+        dto.setDescription(r.description());
+        dto.setPeriod(r.period());
+        dto.setPenaltyAmount(r.penaltyAmount());
+        dto.setPenaltyRecipientIds(new ArrayList<>());
+        dto.setRecipientFriends(new ArrayList<>());
+        dto.setStatus(r.status());
+        dto.setCompletedDates(new ArrayList<>());
+        dto.setCreatedAt(DateUtils.format(r.createdAt()));
+        dto.setStartDate(DateUtils.format(r.startDate()));
+        dto.setEndDate(DateUtils.format(r.endDate()));
+        return dto;
+    }
+
+    private static void addRecipient(TaskDto dto, Long userId, String name) {
+        dto.getPenaltyRecipientIds().add(String.valueOf(userId));
+        UserDto userDto = new UserDto();
+        userDto.setId(String.valueOf(userId));
+        userDto.setName(name);
+        dto.getRecipientFriends().add(userDto);
     }
 
     public List<Task> getAllTasks() {
@@ -574,10 +634,13 @@ public class TaskService {
     @Transactional(readOnly = false)
     public void applyMissedTaskPenalties() {
         log.info("applyMissedTaskPenalties: start");
+        long start = System.nanoTime();
+        int created = 0;
         LocalDate today = LocalDate.now();
         LocalDate yesterday = today.minusDays(1);
 
-        List<Task> all = taskRepository.findAll();
+        // the oldest period judged below starts on the first of last month
+        List<Task> all = taskRepository.findPenaltyCandidates(today.minusMonths(1).withDayOfMonth(1), yesterday);
 
         for (Task t : all) {
             try {
@@ -592,7 +655,7 @@ public class TaskService {
                         String key = yesterday.toString();
                         if (t.getCompletedDates().contains(key))
                             continue;
-                        applyPenaltiesForTaskPeriod(t, key);
+                        created += applyPenaltiesForTaskPeriod(t, key);
                     }
                     case "weekly" -> {
                         // run only when yesterday was Sunday (week ended)
@@ -602,7 +665,7 @@ public class TaskService {
                         String key = weekStart.toString();
                         if (t.getCompletedDates().contains(key))
                             continue;
-                        applyPenaltiesForTaskPeriod(t, key);
+                        created += applyPenaltiesForTaskPeriod(t, key);
                     }
                     case "monthly" -> {
                         // run only when today is 1st of month
@@ -612,7 +675,7 @@ public class TaskService {
                         String key = monthStart.toString();
                         if (t.getCompletedDates().contains(key))
                             continue;
-                        applyPenaltiesForTaskPeriod(t, key);
+                        created += applyPenaltiesForTaskPeriod(t, key);
                     }
                 }
             } catch (Exception e) {
@@ -620,12 +683,15 @@ public class TaskService {
             }
         }
 
-        log.info("applyMissedTaskPenalties: end");
+        penaltySweep.record(start, all.size(), created);
+        log.info("applyMissedTaskPenalties: end scanned={} created={}", all.size(), created);
     }
 
-    private void applyPenaltiesForTaskPeriod(Task t, String periodKey) {
+    /** Returns the number of penalties created. */
+    private int applyPenaltiesForTaskPeriod(Task t, String periodKey) {
+        int created = 0;
         if (t.getPenaltyRecipients() == null || t.getPenaltyRecipients().isEmpty())
-            return;
+            return created;
         for (User recipient : t.getPenaltyRecipients())
             try {
                 // avoid duplicates per recipient
@@ -640,15 +706,20 @@ public class TaskService {
                 p.setToUser(recipient);
                 p.setAmount(t.getPenaltyAmount());
                 p.setReason("Missed task: " + t.getTitle());
-                p.setCreatedAt(Instant.now().toString());
+                p.setCreatedAt(Instant.now());
                 p.setPeriodKey(periodKey);
                 penaltyRepository.save(p);
+                resourceVersions.penaltyChanged(p);
+                changeLog.penalty(p, false);
+                eventBus.penaltyCreated(p);
+                created++;
                 log.info("applyMissedTaskPenalties: created penalty id={} taskId={} toUser={} amount={} periodKey={}",
                         p.getId(), t.getId(), recipient.getId(), p.getAmount(), periodKey);
             } catch (Exception e) {
                 log.warn("applyMissedTaskPenalties: failed to create penalty for task {} recipient {}: {}",
                         t.getId(), recipient == null ? null : recipient.getId(), e.getMessage());
             }
+        return created;
     }
 
 }
@@ -0,0 +1,388 @@
+package com.ajayprem.habittracker.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.repository.UserSummary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory n-gram index over user names and emails backing the friend search
+ * box. Substring queries of three or more characters are answered by
+ * intersecting trigram posting lists; shorter queries use token-prefix postings.
+ * Built on startup and updated on signup. Signups and profile changes on other
+ * instances arrive through the {@link InvalidationBus}, and the index is rebuilt
+ * whenever the bus may have missed some.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final int GRAM = 3;
+    private static final char PREFIX_MARK = '^';
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private boolean rebuilding;
+    private final List<Entry> addedDuringRebuild = new ArrayList<>();
+
+    private Timer queryTimer;
+
+    public record Entry(long id, String name, String email, String nameLower, String emailLower) {
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("user.search.index.users", this, UserSearchIndex::size)
+                .description("Users held in the in-memory search index").register(registry);
+        Gauge.builder("user.search.index.grams", this, UserSearchIndex::gramCount)
+                .description("Distinct n-grams held in the in-memory search index").register(registry);
+        Gauge.builder("user.search.index.bytes", this, UserSearchIndex::estimatedBytes)
+                .description("Estimated heap footprint of the in-memory search index")
+                .baseUnit("bytes").register(registry);
+        queryTimer = Timer.builder("user.search.index.query")
+                .description("Latency of in-memory user search queries").register(registry);
+    }
+
+    @PostConstruct
+    void subscribeInvalidations() {
+        invalidationBus.subscribe(InvalidationBus.Topic.USERS, key -> {
+            for (UserSummary u : userRepository.findSummariesByIds(List.of(Long.valueOf(key)))) {
+                add(u.getId(), u.getName(), u.getEmail());
+            }
+        });
+        invalidationBus.onFlush(this::rebuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reload every user from the database and swap in a freshly built index.
+     * Users added while the rebuild is running are replayed onto the new index.
+     * Returns the number of indexed users.
+     */
+    public int rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            addedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        try {
+            for (UserSummary u : userRepository.findAllSummaries()) {
+                fresh.add(entryOf(u.getId(), u.getName(), u.getEmail()));
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                for (Entry e : addedDuringRebuild) {
+                    fresh.add(e);
+                }
+                addedDuringRebuild.clear();
+                rebuilding = false;
+                state = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("rebuild: indexed {} users, {} grams, ~{} bytes in {} ms", fresh.liveCount, fresh.postings.size(),
+                fresh.estimatedBytes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return fresh.liveCount;
+    }
+
+    /**
+     * Add a user to the index, replacing any previous entry with the same id.
+     */
+    public void add(Long id, String name, String email) {
+        if (id == null) {
+            return;
+        }
+        Entry e = entryOf(id, name, email);
+        lock.writeLock().lock();
+        try {
+            state.add(e);
+            if (rebuilding) {
+                addedDuringRebuild.add(e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return up to {@code limit} users whose name or email contains the query,
+     * best matches first: exact, then whole-field prefix, then token prefix,
+     * then plain substring. Users matching {@code exclude} are skipped.
+     */
+    public List<Entry> search(String query, int limit, LongPredicate exclude) {
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return state.search(q, limit, exclude);
+        } finally {
+            lock.readLock().unlock();
+            if (queryTimer != null) {
+                queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int gramCount() {
+        lock.readLock().lock();
+        try {
+            return state.postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return state.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Entry entryOf(Long id, String name, String email) {
+        String n = name == null ? "" : name;
+        String e = email == null ? "" : email;
+        return new Entry(id, n, e, n.toLowerCase(Locale.ROOT), e.toLowerCase(Locale.ROOT));
+    }
+
+    /** Growable, always-sorted list of document ordinals. */
+    private static final class Postings {
+        int[] ords = new int[4];
+        int size;
+
+        void add(int ord) {
+            if (size > 0 && ords[size - 1] == ord) {
+                return;
+            }
+            if (size == ords.length) {
+                ords = Arrays.copyOf(ords, size * 2);
+            }
+            ords[size++] = ord;
+        }
+
+        boolean contains(int ord) {
+            return Arrays.binarySearch(ords, 0, size, ord) >= 0;
+        }
+    }
+
+    private record Hit(Entry entry, int rank) {
+    }
+
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparingInt(Hit::rank)
+            .thenComparingInt(h -> h.entry().name().length())
+            .thenComparingLong(h -> h.entry().id());
+
+    private static final class State {
+        // ordinal -> entry; null marks an entry replaced by a later add
+        Entry[] docs = new Entry[16];
+        int docCount;
+        int liveCount;
+        final Map<Long, Integer> ordinalById = new HashMap<>();
+        final Map<String, Postings> postings = new HashMap<>();
+
+        void add(Entry e) {
+            Integer previous = ordinalById.get(e.id());
+            if (previous != null) {
+                docs[previous] = null;
+                liveCount--;
+            }
+            if (docCount == docs.length) {
+                docs = Arrays.copyOf(docs, docCount * 2);
+            }
+            int ord = docCount++;
+            docs[ord] = e;
+            ordinalById.put(e.id(), ord);
+            liveCount++;
+            for (String gram : gramsOf(e)) {
+                postings.computeIfAbsent(gram, k -> new Postings()).add(ord);
+            }
+        }
+
+        List<Entry> search(String q, int limit, LongPredicate exclude) {
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            if (q.length() < GRAM) {
+                Postings p = postings.get(PREFIX_MARK + q);
+                if (p != null) {
+                    for (int i = 0; i < p.size; i++) {
+                        offer(top, docs[p.ords[i]], q, limit, exclude);
+                    }
+                }
+            } else {
+                Postings[] lists = trigramPostings(q);
+                if (lists != null) {
+                    Postings smallest = lists[0];
+                    outer: for (int i = 0; i < smallest.size; i++) {
+                        int ord = smallest.ords[i];
+                        for (int j = 1; j < lists.length; j++) {
+                            if (!lists[j].contains(ord)) {
+                                continue outer;
+                            }
+                        }
+                        offer(top, docs[ord], q, limit, exclude);
+                    }
+                }
+            }
+            List<Entry> out = new ArrayList<>(top.size());
+            top.stream().sorted(BEST_FIRST).forEach(h -> out.add(h.entry()));
+            return out;
+        }
+
+        private Postings[] trigramPostings(String q) {
+            Set<String> grams = new LinkedHashSet<>();
+            for (int i = 0; i + GRAM <= q.length(); i++) {
+                grams.add(q.substring(i, i + GRAM));
+            }
+            Postings[] lists = new Postings[grams.size()];
+            int i = 0;
+            for (String g : grams) {
+                Postings p = postings.get(g);
+                if (p == null) {
+                    return null;
+                }
+                lists[i++] = p;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            return lists;
+        }
+
+        private static void offer(PriorityQueue<Hit> top, Entry e, String q, int limit, LongPredicate exclude) {
+            if (e == null || (exclude != null && exclude.test(e.id()))) {
+                return;
+            }
+            int rank = rank(e, q);
+            if (rank < 0) {
+                return;
+            }
+            top.offer(new Hit(e, rank));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        private static int rank(Entry e, String q) {
+            if (e.emailLower().equals(q) || e.nameLower().equals(q)) {
+                return 0;
+            }
+            if (e.emailLower().startsWith(q) || e.nameLower().startsWith(q)) {
+                return 1;
+            }
+            for (String token : tokensOf(e)) {
+                if (token.startsWith(q)) {
+                    return 2;
+                }
+            }
+            if (e.emailLower().contains(q) || e.nameLower().contains(q)) {
+                return 3;
+            }
+            return -1;
+        }
+
+        long estimatedBytes() {
+            long bytes = (long) docs.length * 8 + ordinalById.size() * 64L;
+            for (int i = 0; i < docCount; i++) {
+                Entry e = docs[i];
+                if (e != null) {
+                    bytes += 48 + 4L * (e.name().length() + e.email().length()) + 160;
+                }
+            }
+            for (Map.Entry<String, Postings> p : postings.entrySet()) {
+                bytes += 48 + 2L * p.getKey().length() + 32 + 16 + 4L * p.getValue().ords.length;
+            }
+            return bytes;
+        }
+    }
+
+    private static List<String> tokensOf(Entry e) {
+        List<String> tokens = new ArrayList<>();
+        for (String t : e.nameLower().split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) {
+                tokens.add(t);
+            }
+        }
+        for (String t : e.emailLower().split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) {
+                tokens.add(t);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> gramsOf(Entry e) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String field : new String[] { e.nameLower(), e.emailLower() }) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(field.substring(i, i + GRAM));
+            }
+            addPrefixes(grams, field);
+        }
+        for (String token : tokensOf(e)) {
+            addPrefixes(grams, token);
+        }
+        return grams;
+    }
+
+    private static void addPrefixes(Set<String> grams, String s) {
+        for (int len = 1; len < GRAM && len <= s.length(); len++) {
+            grams.add(PREFIX_MARK + s.substring(0, len));
+        }
+    }
+}
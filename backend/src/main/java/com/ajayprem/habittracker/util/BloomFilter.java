@@ -0,0 +1,76 @@
+package com.ajayprem.habittracker.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. {@link #mightContain} never returns a
+ * false negative, so a {@code false} answer is definitive. Bits are set with
+ * atomic operations, so concurrent adds and lookups are safe without locking.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        this.numBits = m;
+        this.numHashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (m / 64));
+    }
+
+    public void add(String value) {
+        long h = fnv1a64(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            do {
+                cur = bits.get(word);
+                if ((cur & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, cur, cur | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long h = fnv1a64(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return numBits;
+    }
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % numBits;
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        // final avalanche so both halves are well mixed
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
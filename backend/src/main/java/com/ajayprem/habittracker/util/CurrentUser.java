@@ -9,4 +9,10 @@ public class CurrentUser {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return (Long) auth.getPrincipal();
     }
+
+    /** Id (jti) of the session token the current request authenticated with. */
+    public static String tokenId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth == null ? null : (String) auth.getCredentials();
+    }
 }
@@ -23,6 +23,37 @@ public class DateUtils {
         }
     }
 
+    /**
+     * Parse an instant written as ISO-8601, epoch milliseconds or a plain date
+     * (taken as the start of that day). Returns null for anything else.
+     */
+    public static Instant parseToInstant(String s) {
+        if (s == null || s.isBlank())
+            return null;
+        try {
+            return Instant.parse(s);
+        } catch (DateTimeParseException ex) {
+            try {
+                if (s.chars().allMatch(Character::isDigit)) {
+                    return Instant.ofEpochMilli(Long.parseLong(s));
+                }
+                return LocalDate.parse(s).atStartOfDay(ZoneId.systemDefault()).toInstant();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    /** Wire form of a date column: {@code yyyy-MM-dd}, or null. */
+    public static String format(LocalDate date) {
+        return date == null ? null : date.toString();
+    }
+
+    /** Wire form of a timestamp column: ISO-8601 in UTC, or null. */
+    public static String format(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
     public static LocalDate periodKeyFor(LocalDate date, String period) {
         if (date == null)
             return null;
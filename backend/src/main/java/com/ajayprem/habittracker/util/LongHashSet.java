@@ -0,0 +1,136 @@
+package com.ajayprem.habittracker.util;
+
+/**
+ * Open-addressing hash set of primitive positive longs (entity ids). Avoids the
+ * boxing and per-entry node allocation of {@code HashSet<Long>}. Not
+ * thread-safe; share instances only as read-only snapshots.
+ */
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        table = new long[cap];
+        mask = cap - 1;
+    }
+
+    public boolean add(long value) {
+        checkKey(value);
+        if ((size + 1) * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        int i = slot(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return false;
+        }
+        int i = slot(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            return false;
+        }
+        int i = slot(value);
+        while (table[i] != value) {
+            if (table[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = table[j];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                table[gap] = k;
+                gap = j;
+            }
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public LongHashSet copy() {
+        LongHashSet c = new LongHashSet(4);
+        c.table = table.clone();
+        c.mask = mask;
+        c.size = size;
+        return c;
+    }
+
+    public long[] toArray() {
+        long[] out = new long[size];
+        int n = 0;
+        for (long v : table) {
+            if (v != EMPTY) {
+                out[n++] = v;
+            }
+        }
+        return out;
+    }
+
+    private int slot(long value) {
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (long v : old) {
+            if (v != EMPTY) {
+                add(v);
+            }
+        }
+    }
+
+    private static void checkKey(long value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("LongHashSet does not store 0");
+        }
+    }
+}
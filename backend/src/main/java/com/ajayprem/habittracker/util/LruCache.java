@@ -0,0 +1,113 @@
+package com.ajayprem.habittracker.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small bounded LRU map with hit/miss accounting. Guarded by a single
+ * {@link ReentrantLock}; intended for short critical sections (lookups and
+ * snapshot swaps), never for loading values.
+ */
+public class LruCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> map;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public LruCache(int maxSize) {
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        V v;
+        lock.lock();
+        try {
+            v = map.get(key);
+        } finally {
+            lock.unlock();
+        }
+        (v == null ? misses : hits).incrementAndGet();
+        return v;
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            map.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Replace the value for {@code key} only if one is currently cached. */
+    public void updateIfPresent(K key, UnaryOperator<V> fn) {
+        lock.lock();
+        try {
+            V v = map.get(key);
+            if (v != null) {
+                map.put(key, fn.apply(v));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            map.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
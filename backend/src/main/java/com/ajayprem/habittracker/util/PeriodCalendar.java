@@ -0,0 +1,89 @@
+package com.ajayprem.habittracker.util;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Daily, weekly and monthly periods as consecutive numbers, so the number of
+ * periods between two dates is a subtraction instead of a walk.
+ *
+ * A daily period is its epoch day. A weekly period is an ISO week (Monday to
+ * Sunday) counted from the week of 1970-01-01; epoch day 0 is a Thursday, so
+ * shifting by three puts every Monday at a multiple of seven. A monthly period
+ * is year * 12 + month. A null or unknown period is daily, as in
+ * {@link DateUtils#periodKeyFor}, whose keys are the first day of each period.
+ */
+public class PeriodCalendar {
+
+    public static long index(LocalDate date, String period) {
+        return switch (normalize(period)) {
+            case "weekly" -> Math.floorDiv(date.toEpochDay() + 3, 7);
+            case "monthly" -> date.getYear() * 12L + date.getMonthValue() - 1;
+            default -> date.toEpochDay();
+        };
+    }
+
+    /** First day of the period with the given index, the date its completion key names. */
+    public static LocalDate start(long index, String period) {
+        return switch (normalize(period)) {
+            case "weekly" -> LocalDate.ofEpochDay(index * 7 - 3);
+            case "monthly" -> LocalDate.of((int) Math.floorDiv(index, 12), (int) Math.floorMod(index, 12) + 1, 1);
+            default -> LocalDate.ofEpochDay(index);
+        };
+    }
+
+    /** Periods from the one containing from through the one containing to; 0 if to is before from. */
+    public static long periodsThrough(LocalDate from, LocalDate to, String period) {
+        return Math.max(0, index(to, period) - index(from, period) + 1);
+    }
+
+    /** Periods from the one containing from up to, not including, the one containing to. */
+    public static long periodsBefore(LocalDate from, LocalDate to, String period) {
+        return Math.max(0, index(to, period) - index(from, period));
+    }
+
+    /**
+     * Distinct periods named by the completion keys whose index is in
+     * [fromIndex, toIndex). Keys that are not dates are ignored.
+     */
+    public static int countCompleted(Collection<String> keys, String period, long fromIndex, long toIndex) {
+        return inRange(keys, period, fromIndex, toIndex).size();
+    }
+
+    /**
+     * Key of the earliest period in [fromIndex, toIndex) with no completion, or
+     * null if every one has one. Looks at no more periods than there are keys.
+     */
+    public static String firstMissing(Collection<String> keys, String period, long fromIndex, long toIndex) {
+        Set<Long> done = inRange(keys, period, fromIndex, toIndex);
+        long i = fromIndex;
+        while (i < toIndex && done.contains(i)) {
+            i++;
+        }
+        return i < toIndex ? start(i, period).toString() : null;
+    }
+
+    private static Set<Long> inRange(Collection<String> keys, String period, long fromIndex, long toIndex) {
+        Set<Long> out = new HashSet<>();
+        if (keys == null) {
+            return out;
+        }
+        for (String key : keys) {
+            LocalDate d = DateUtils.parseToLocalDate(key);
+            if (d == null) {
+                continue;
+            }
+            long i = index(d, period);
+            if (i >= fromIndex && i < toIndex) {
+                out.add(i);
+            }
+        }
+        return out;
+    }
+
+    private static String normalize(String period) {
+        return period == null ? "daily" : period.toLowerCase();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ajayprem.habittracker.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU map bounded by the total weight of its values rather than their count.
+ * Same locking discipline as {@link LruCache}: one {@link ReentrantLock}
+ * around short map operations, never around loading a value.
+ */
+public class WeightedLruCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<V> weigher;
+    private final long maxWeight;
+    private long weight;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public V get(K key) {
+        V v;
+        lock.lock();
+        try {
+            v = map.get(key);
+        } finally {
+            lock.unlock();
+        }
+        (v == null ? misses : hits).incrementAndGet();
+        return v;
+    }
+
+    /**
+     * Insert or replace the value, then evict least recently used entries
+     * until the total weight fits. A value heavier than the whole budget is
+     * not stored.
+     */
+    public void put(K key, V value) {
+        long w = weigher.applyAsLong(value);
+        lock.lock();
+        try {
+            V old = map.remove(key);
+            if (old != null) {
+                weight -= weigher.applyAsLong(old);
+            }
+            if (w > maxWeight) {
+                return;
+            }
+            map.put(key, value);
+            weight += w;
+            Iterator<V> it = map.values().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                weight -= weigher.applyAsLong(it.next());
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            V old = map.remove(key);
+            if (old != null) {
+                weight -= weigher.applyAsLong(old);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+}
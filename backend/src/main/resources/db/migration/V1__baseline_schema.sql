@@ -0,0 +1,125 @@
+-- The schema of the last release before migrations, exactly as its ddl-auto
+-- created it: date and timestamp columns still strings, and Hibernate's
+-- generated constraint names. Databases that already have it are baselined at
+-- this version and skip this script, so a new database and an upgraded one go
+-- through the same later scripts: V2 types the date columns, V3 adds the
+-- session and sync tables, V4 the secondary indexes.
+
+CREATE TABLE app_user (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY,
+    created_at varchar(255),
+    email      varchar(255),
+    name       varchar(255),
+    password   varchar(255),
+    CONSTRAINT app_user_pkey PRIMARY KEY (id),
+    CONSTRAINT uk1j9d9a06i600gd43uu3km82jw UNIQUE (email)
+);
+
+CREATE TABLE auth_token (
+    token   varchar(255) NOT NULL,
+    user_id bigint,
+    CONSTRAINT auth_token_pkey PRIMARY KEY (token),
+    CONSTRAINT fkl2e2h0kvxcwjfywm5weibtsvg FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE user_friends (
+    user_id   bigint NOT NULL,
+    friend_id bigint NOT NULL,
+    CONSTRAINT user_friends_pkey PRIMARY KEY (user_id, friend_id),
+    CONSTRAINT fk1uvme89w57fum9rfc7uf40q1b FOREIGN KEY (user_id) REFERENCES app_user (id),
+    CONSTRAINT fk4g6l2tc5rwn8drtlmc5tvqw6w FOREIGN KEY (friend_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE friend_request (
+    created_at   varchar(255),
+    status       varchar(255),
+    from_user_id bigint NOT NULL,
+    to_user_id   bigint NOT NULL,
+    CONSTRAINT friend_request_pkey PRIMARY KEY (from_user_id, to_user_id),
+    CONSTRAINT fk9j7qe6lu42g7fuvtmabmklnb2 FOREIGN KEY (from_user_id) REFERENCES app_user (id),
+    CONSTRAINT fkhk9lqesusg43933g0f3npeoe8 FOREIGN KEY (to_user_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE task (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY,
+    created_at     varchar(255),
+    description    varchar(255),
+    end_date       varchar(255),
+    penalty_amount float(53)    NOT NULL,
+    period         varchar(255),
+    start_date     varchar(255),
+    status         varchar(255),
+    title          varchar(255),
+    user_id        bigint,
+    CONSTRAINT task_pkey PRIMARY KEY (id),
+    CONSTRAINT fksh6s1t7gbjr0ja7923du08fi8 FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE task_penalty_recipients (
+    task_id bigint NOT NULL,
+    user_id bigint NOT NULL,
+    CONSTRAINT fkol316w25060bcek02wmdjlrub FOREIGN KEY (task_id) REFERENCES task (id),
+    CONSTRAINT fk1i8w2sxf0503jyy4v84435frw FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE task_completed_dates (
+    task_id        bigint NOT NULL,
+    completed_date varchar(255),
+    CONSTRAINT fkn2a73tmu8jbdglgv6k2dctltd FOREIGN KEY (task_id) REFERENCES task (id)
+);
+
+CREATE TABLE challenge (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY,
+    created_at     varchar(255),
+    description    varchar(255),
+    end_date       varchar(255),
+    next_due_date  varchar(255),
+    penalty_amount float(53)    NOT NULL,
+    period         varchar(255),
+    start_date     varchar(255),
+    status         varchar(255),
+    title          varchar(255),
+    creator_id     bigint,
+    CONSTRAINT challenge_pkey PRIMARY KEY (id),
+    CONSTRAINT fkoyxtk0qh2b5uqcs38m9xbjqge FOREIGN KEY (creator_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE challenge_invited_users (
+    challenge_id    bigint NOT NULL,
+    invited_user_id bigint,
+    CONSTRAINT fk9tsn6f2e2h1mocfabo1stvjow FOREIGN KEY (challenge_id) REFERENCES challenge (id)
+);
+
+CREATE TABLE challenge_participant (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY,
+    status       varchar(255),
+    challenge_id bigint,
+    user_id      bigint,
+    CONSTRAINT challenge_participant_pkey PRIMARY KEY (id),
+    CONSTRAINT fkcmotvehs33fr3oregxapplphf FOREIGN KEY (challenge_id) REFERENCES challenge (id),
+    CONSTRAINT fkk62x2rf7sliwypkejo230b42b FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+CREATE TABLE challenge_participant_completed (
+    participant_id bigint NOT NULL,
+    completed_date varchar(255),
+    CONSTRAINT fkp94x41rloscjd7tkbg2tapmyc FOREIGN KEY (participant_id) REFERENCES challenge_participant (id)
+);
+
+CREATE TABLE penalty (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY,
+    amount       float(53)    NOT NULL,
+    created_at   varchar(255),
+    period_key   varchar(255),
+    reason       varchar(255),
+    type         varchar(255),
+    challenge_id bigint,
+    from_user_id bigint,
+    task_id      bigint,
+    to_user_id   bigint,
+    CONSTRAINT penalty_pkey PRIMARY KEY (id),
+    CONSTRAINT fkiilbx26v1fgp3a5gf6bbbqglq FOREIGN KEY (task_id) REFERENCES task (id),
+    CONSTRAINT fkcsrh5kp4dt75fu1aheuc395yi FOREIGN KEY (challenge_id) REFERENCES challenge (id),
+    CONSTRAINT fkgxmo78jddfhcugx1mcw2ole09 FOREIGN KEY (from_user_id) REFERENCES app_user (id),
+    CONSTRAINT fk5cfv3ug911lv4ilfyxs34ygg8 FOREIGN KEY (to_user_id) REFERENCES app_user (id)
+);
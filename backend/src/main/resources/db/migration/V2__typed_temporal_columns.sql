@@ -0,0 +1,65 @@
+-- Convert the date and timestamp columns that were stored as strings.
+--
+-- Dates were written as yyyy-MM-dd, occasionally as a full ISO instant;
+-- timestamps as ISO instants, and app_user.created_at as epoch milliseconds.
+-- Values that parse as none of these become NULL.
+--
+-- V1 creates these columns as strings, as the last release did, so this runs
+-- the same way on a new database and an upgraded one. Each column is converted
+-- only while it is still a string, so running the script again changes nothing.
+
+CREATE OR REPLACE FUNCTION pg_temp.to_date_lenient(s text) RETURNS date AS $$
+BEGIN
+    IF s IS NULL OR btrim(s) = '' THEN
+        RETURN NULL;
+    END IF;
+    IF s ~ '^\d{4}-\d{2}-\d{2}$' THEN
+        RETURN s::date;
+    END IF;
+    RETURN (s::timestamptz)::date;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION pg_temp.to_timestamptz_lenient(s text) RETURNS timestamptz AS $$
+BEGIN
+    IF s IS NULL OR btrim(s) = '' THEN
+        RETURN NULL;
+    END IF;
+    IF s ~ '^\d+$' THEN
+        RETURN to_timestamp(s::bigint / 1000.0);
+    END IF;
+    RETURN s::timestamptz;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION pg_temp.retype(tbl text, col text, typ text, conv text) RETURNS void AS $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = tbl AND column_name = col
+                 AND data_type IN ('character varying', 'text')) THEN
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN %I TYPE %s USING pg_temp.%I(%I)', tbl, col, typ, conv, col);
+    END IF;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.retype('task', 'created_at', 'timestamptz', 'to_timestamptz_lenient');
+SELECT pg_temp.retype('task', 'start_date', 'date', 'to_date_lenient');
+SELECT pg_temp.retype('task', 'end_date', 'date', 'to_date_lenient');
+
+SELECT pg_temp.retype('challenge', 'created_at', 'timestamptz', 'to_timestamptz_lenient');
+SELECT pg_temp.retype('challenge', 'next_due_date', 'date', 'to_date_lenient');
+SELECT pg_temp.retype('challenge', 'start_date', 'date', 'to_date_lenient');
+SELECT pg_temp.retype('challenge', 'end_date', 'date', 'to_date_lenient');
+
+SELECT pg_temp.retype('penalty', 'created_at', 'timestamptz', 'to_timestamptz_lenient');
+
+SELECT pg_temp.retype('app_user', 'created_at', 'timestamptz', 'to_timestamptz_lenient');
+
+-- Flyway runs on a pooled connection, so do not leave the helpers behind in its session
+DROP FUNCTION pg_temp.retype(text, text, text, text);
+DROP FUNCTION pg_temp.to_timestamptz_lenient(text);
+DROP FUNCTION pg_temp.to_date_lenient(text);
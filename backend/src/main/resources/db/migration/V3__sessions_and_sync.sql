@@ -0,0 +1,33 @@
+-- Tables and columns the released schema (V1) does not have yet.
+
+-- auth_token: one row per issued session, keyed by the JWT id (jti). The
+-- released app never wrote this table, so no existing row needs an expiry.
+ALTER TABLE auth_token
+    ADD COLUMN expires_at timestamp(6) with time zone,
+    ADD COLUMN revoked    boolean NOT NULL DEFAULT false,
+    ADD COLUMN revoked_at timestamp(6) with time zone;
+
+-- change_log: what changed in each user's lists, for delta sync (ChangeLogRepository).
+CREATE TABLE change_log (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id    bigint                      NOT NULL,
+    resource   varchar(16)                 NOT NULL,
+    entity_id  bigint                      NOT NULL,
+    deleted    boolean                     NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pk_change_log PRIMARY KEY (id)
+);
+
+-- resource_version: per-user list versions behind the ETags (ResourceVersions).
+-- A row counts the committed changes to one of the user's lists: resource is
+-- 't', 'c', 'f' or 'p' for tasks, challenges, friends and penalties. Keeping
+-- the count here rather than in each instance's memory means every instance
+-- hands out the same ETag for the same data. Rows are created on the first
+-- change; a missing row is version 0. There is no foreign key to app_user, so a
+-- version row can never be the reason the write it belongs to fails.
+CREATE TABLE resource_version (
+    user_id  bigint  NOT NULL,
+    resource char(1) NOT NULL,
+    version  bigint  NOT NULL,
+    CONSTRAINT pk_resource_version PRIMARY KEY (user_id, resource)
+);
@@ -0,0 +1,42 @@
+-- Indexes for every list, lookup and sweep query in the repositories. The
+-- released schema had none besides its primary keys and the email unique
+-- constraint. QueryPlanTest checks that each repository query can use them.
+
+-- tasks: per-user lists, recipients, completion keys and the penalty sweep
+CREATE INDEX idx_task_user_id ON task (user_id);
+-- the sweep only looks at tasks with a penalty, which are a small share of all tasks
+CREATE INDEX idx_task_penalty_end_date ON task (end_date) WHERE penalty_amount > 0;
+CREATE INDEX idx_task_penalty_recipients_task_id ON task_penalty_recipients (task_id, user_id);
+CREATE INDEX idx_task_penalty_recipients_user_id ON task_penalty_recipients (user_id);
+CREATE INDEX idx_task_completed_dates_task_id ON task_completed_dates (task_id, completed_date);
+
+-- challenges: visibility (creator or invited), participants, completion keys and the end-of-challenge sweep
+CREATE INDEX idx_challenge_creator_id ON challenge (creator_id);
+-- nearly every challenge has ended; the sweep wants only those still active
+CREATE INDEX idx_challenge_active_end_date ON challenge (end_date) WHERE lower(status) = 'active';
+CREATE INDEX idx_challenge_invited_users_challenge_id ON challenge_invited_users (challenge_id);
+CREATE INDEX idx_challenge_invited_users_invited_user_id
+    ON challenge_invited_users (invited_user_id, challenge_id);
+CREATE INDEX idx_challenge_participant_challenge_id ON challenge_participant (challenge_id);
+CREATE INDEX idx_challenge_participant_user_id ON challenge_participant (user_id);
+CREATE INDEX idx_challenge_participant_completed_participant_id
+    ON challenge_participant_completed (participant_id, completed_date);
+
+-- penalties: duplicate check in the task sweep, per-user lists (newest first), per-challenge lookups
+CREATE INDEX idx_penalty_task_period_to_user ON penalty (task_id, period_key, to_user_id);
+CREATE INDEX idx_penalty_from_user_created_at ON penalty (from_user_id, created_at);
+CREATE INDEX idx_penalty_to_user_created_at ON penalty (to_user_id, created_at);
+CREATE INDEX idx_penalty_challenge_from_user ON penalty (challenge_id, from_user_id);
+
+-- friends: user_friends is read by user_id, which its primary key leads with;
+-- requests are listed by recipient
+CREATE INDEX idx_friend_request_to_user_id ON friend_request (to_user_id);
+
+-- sessions: per-user revocation, expiry pruning and the revoked-id sync
+CREATE INDEX idx_auth_token_user_id ON auth_token (user_id);
+CREATE INDEX idx_auth_token_expires_at ON auth_token (expires_at);
+CREATE INDEX idx_auth_token_revoked_at ON auth_token (revoked_at) WHERE revoked;
+
+-- delta sync: per-user reads by id and pruning by age
+CREATE INDEX idx_change_log_user_id ON change_log (user_id, id);
+CREATE INDEX idx_change_log_created_at ON change_log (created_at);
@@ -0,0 +1,61 @@
+-- Per-user, per-day completion counts behind the year heatmap. A row holds how
+-- many of the user's tasks and challenges were completed on that day and how
+-- many were due. Weekly and monthly items count on the first day of their
+-- period, the same date their completion keys use. The primary key serves the
+-- heatmap's one range read.
+-- completed is kept by the complete/uncomplete paths and due by them and a
+-- scheduled refresh (DailyRollupRepository); this script backfills both from
+-- the completion history.
+
+CREATE TABLE daily_rollup (
+    user_id   bigint   NOT NULL,
+    day       date     NOT NULL,
+    completed smallint NOT NULL DEFAULT 0,
+    due       smallint NOT NULL DEFAULT 0,
+    CONSTRAINT pk_daily_rollup PRIMARY KEY (user_id, day),
+    CONSTRAINT fk_daily_rollup_user FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+INSERT INTO daily_rollup (user_id, day, completed)
+SELECT user_id, day, count(*)
+FROM (
+    SELECT t.user_id, d.completed_date::date AS day
+    FROM task_completed_dates d
+    JOIN task t ON t.id = d.task_id
+    WHERE t.user_id IS NOT NULL AND d.completed_date ~ '^\d{4}-\d{2}-\d{2}$'
+    UNION ALL
+    SELECT p.user_id, c.completed_date::date
+    FROM challenge_participant_completed c
+    JOIN challenge_participant p ON p.id = c.participant_id
+    WHERE p.user_id IS NOT NULL AND c.completed_date ~ '^\d{4}-\d{2}-\d{2}$'
+) x
+GROUP BY user_id, day;
+
+-- every period start from the item's first period up to today
+INSERT INTO daily_rollup (user_id, day, due)
+SELECT user_id, day, count(*)
+FROM (
+    SELECT t.user_id, g::date AS day
+    FROM task t,
+         generate_series(
+             date_trunc(CASE lower(t.period) WHEN 'weekly' THEN 'week' WHEN 'monthly' THEN 'month' ELSE 'day' END,
+                        t.start_date::timestamp),
+             least(coalesce(t.end_date, current_date), current_date)::timestamp,
+             CASE lower(t.period) WHEN 'weekly' THEN interval '1 week' WHEN 'monthly' THEN interval '1 month'
+                                  ELSE interval '1 day' END) g
+    WHERE t.user_id IS NOT NULL AND t.start_date IS NOT NULL
+    UNION ALL
+    SELECT p.user_id, g::date
+    FROM challenge_participant p
+    JOIN challenge c ON c.id = p.challenge_id,
+         generate_series(
+             date_trunc(CASE lower(c.period) WHEN 'weekly' THEN 'week' WHEN 'monthly' THEN 'month' ELSE 'day' END,
+                        c.start_date::timestamp),
+             least(coalesce(c.end_date, current_date), current_date)::timestamp,
+             CASE lower(c.period) WHEN 'weekly' THEN interval '1 week' WHEN 'monthly' THEN interval '1 month'
+                                  ELSE interval '1 day' END) g
+    WHERE p.user_id IS NOT NULL AND p.status = 'accepted' AND c.status IS DISTINCT FROM 'rejected'
+      AND c.start_date IS NOT NULL
+) x
+GROUP BY user_id, day
+ON CONFLICT (user_id, day) DO UPDATE SET due = excluded.due;
@@ -0,0 +1,156 @@
+package com.ajayprem.habittracker.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.ajayprem.habittracker.dto.DateRequest;
+import com.ajayprem.habittracker.dto.StreamedList;
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bytes allocated per request body by each JSON path, measured with the
+ * per-thread allocation counter. Not a surefire test by name; run it with
+ * {@code mvn test -Dtest=JsonAllocationBenchmark}. The numbers are printed
+ * and the assertions only check that the cached paths are not worse.
+ */
+class JsonAllocationBenchmark {
+
+    private static final int TASKS = 200;
+    private static final int WARMUP = 20_000;
+    private static final int ROUNDS = 20_000;
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final MappingJackson2HttpMessageConverter jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+    private final StreamedListConverter streamed = new StreamedListConverter(objectMapper);
+    private final RequestRecordConverter records = new RequestRecordConverter(objectMapper);
+    private final ByteArrayHttpMessageConverter bytes = new ByteArrayHttpMessageConverter();
+
+    private interface Body {
+        void run() throws IOException;
+    }
+
+    @Test
+    void getTasksResponse() throws IOException {
+        List<TaskDto> tasks = tasks();
+        StreamedList<TaskDto> list = StreamedList.of("tasks", tasks, TaskDto.class);
+        byte[] cached = streamed.toBytes(list);
+
+        long map = measure(() -> jackson.write(Map.of("tasks", tasks), MediaType.APPLICATION_JSON, output()));
+        long writer = measure(() -> streamed.write(list, MediaType.APPLICATION_JSON, output()));
+        long served = measure(() -> bytes.write(cached, MediaType.APPLICATION_JSON, output()));
+
+        System.out.printf("GET /api/tasks, %d tasks, %d bytes of JSON%n", TASKS, cached.length);
+        System.out.printf("  Map.of + default Jackson converter     %,7d B/op%n", map);
+        System.out.printf("  StreamedListConverter (cached writer)  %,7d B/op%n", writer);
+        System.out.printf("  ReadModelCache bytes                   %,7d B/op%n", served);
+        assertTrue(writer <= map, "cached writer allocated more than the map path");
+        assertTrue(served < writer, "cached bytes allocated more than serializing");
+    }
+
+    @Test
+    void dateRequestBody() throws IOException {
+        byte[] json = "{\"date\":\"2026-10-19\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(new DateRequest("2026-10-19"), records.read(DateRequest.class, input(json)));
+
+        long perRequest = measure(() -> jackson.read(DateRequest.class, input(json)));
+        long cachedReader = measure(() -> records.read(DateRequest.class, input(json)));
+
+        System.out.printf("DateRequest body, %d bytes%n", json.length);
+        System.out.printf("  default Jackson converter  %,6d B/op%n", perRequest);
+        System.out.printf("  RequestRecordConverter     %,6d B/op%n", cachedReader);
+        assertTrue(cachedReader <= perRequest, "cached reader allocated more than the default converter");
+    }
+
+    private static long measure(Body body) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) {
+            body.run();
+        }
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ROUNDS; i++) {
+            body.run();
+        }
+        return (threads.getThreadAllocatedBytes(tid) - before) / ROUNDS;
+    }
+
+    private static HttpOutputMessage output() {
+        HttpHeaders headers = new HttpHeaders();
+        return new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return DISCARD;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    private static HttpInputMessage input(byte[] json) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(json);
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    private static List<TaskDto> tasks() {
+        UserDto friend = new UserDto();
+        friend.setId("2");
+        friend.setName("Friend");
+        friend.setEmail("friend@example.com");
+        List<TaskDto> tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            TaskDto t = new TaskDto();
+            t.setId(String.valueOf(i));
+            t.setUserId("1");
+            t.setTitle("Task " + i);
+            t.setDescription("Description of task " + i);
+            t.setPeriod("DAILY");
+            t.setPenaltyAmount(5);
+            t.setPenaltyRecipientIds(List.of("2"));
+            t.setRecipientFriends(List.of(friend));
+            t.setStatus("ACTIVE");
+            t.setCompletedDates(List.of("2026-10-17", "2026-10-18"));
+            t.setCreatedAt("2026-01-01T00:00:00");
+            t.setNextDueDate("2026-10-19");
+            t.setStartDate("2026-01-01");
+            t.setEndDate("2026-12-31");
+            tasks.add(t);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ajayprem.habittracker.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.ajayprem.habittracker.util.DateUtils;
+import com.ajayprem.habittracker.util.PeriodCalendar;
+
+/**
+ * The penalty sweep counts each participant's completions with
+ * {@link ChallengeRepository#countCompletionsByChallengeId}, and the request
+ * path counts them in memory with {@link PeriodCalendar#countCompleted}. This
+ * checks that both give the same count for daily, weekly and monthly
+ * challenges whose ranges cross the epoch, a year end and a month end.
+ *
+ * Uses the same local Postgres server as QueryPlanTest (-Dquery-plans.url,
+ * .username, .password) in a database of its own, and is skipped if the
+ * server cannot be reached.
+ */
+@SpringBootTest(properties = {
+        "app.invalidation.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("serverAvailable")
+class CompletionCountTest {
+
+    private static final String ADMIN_URL = System.getProperty("query-plans.url",
+            "jdbc:postgresql://localhost:5433/postgres");
+    private static final String USERNAME = System.getProperty("query-plans.username", "postgres");
+    private static final String PASSWORD = System.getProperty("query-plans.password", "postgres");
+    private static final String DATABASE = "habittracker_completion_counts";
+
+    private static final int PARTICIPANTS = 6;
+
+    private record Window(String period, LocalDate from, LocalDate to) {
+    }
+
+    private static final List<Window> WINDOWS = List.of(
+            new Window("daily", LocalDate.of(2024, 12, 20), LocalDate.of(2025, 1, 12)),
+            new Window("daily", LocalDate.of(2024, 2, 25), LocalDate.of(2024, 3, 3)),
+            new Window("weekly", LocalDate.of(1969, 12, 3), LocalDate.of(1970, 1, 22)),
+            new Window("weekly", LocalDate.of(2024, 12, 11), LocalDate.of(2025, 1, 16)),
+            new Window("monthly", LocalDate.of(2024, 10, 15), LocalDate.of(2025, 3, 2)),
+            new Window("monthly", LocalDate.of(1969, 11, 30), LocalDate.of(1970, 2, 1)));
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean serverAvailable() {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD)) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD);
+                Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + DATABASE + " with (force)");
+            st.execute("create database " + DATABASE);
+        }
+        registry.add("spring.datasource.url", () -> ADMIN_URL.substring(0, ADMIN_URL.lastIndexOf('/') + 1) + DATABASE);
+        registry.add("spring.datasource.username", () -> USERNAME);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    /**
+     * One challenge per window, challenge id = window number + 1. Each
+     * participant completed a random subset of the periods from two before
+     * the window to two after it, keyed as the completion endpoints key
+     * them, with some keys stored twice. The last participant has none.
+     */
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("insert into app_user (id, name, email, password) values (1, 'u', 'u@example.com', 'x')");
+        Random random = new Random(49);
+        for (int c = 0; c < WINDOWS.size(); c++) {
+            Window w = WINDOWS.get(c);
+            long cid = c + 1;
+            jdbcTemplate.update("insert into challenge (id, creator_id, title, period, penalty_amount, status,"
+                    + " start_date, end_date) values (?, 1, 'c', ?, 1, 'active', ?, ?)", cid, w.period(), w.from(), w.to());
+            long from = PeriodCalendar.index(w.from(), w.period());
+            long to = PeriodCalendar.index(w.to(), w.period());
+            for (int p = 0; p < PARTICIPANTS; p++) {
+                long pid = cid * 100 + p;
+                jdbcTemplate.update("insert into challenge_participant (id, challenge_id, user_id, status)"
+                        + " values (?, ?, 1, 'accepted')", pid, cid);
+                if (p == PARTICIPANTS - 1) {
+                    continue;
+                }
+                List<Object[]> keys = new ArrayList<>();
+                for (long i = from - 2; i < to + 2; i++) {
+                    if (random.nextInt(3) == 0) {
+                        continue;
+                    }
+                    // a day inside the period, keyed the way a check-in on that day is keyed
+                    LocalDate day = PeriodCalendar.start(i, w.period()).plusDays(random.nextInt(periodDays(w.period())));
+                    String key = DateUtils.periodKeyFor(day, w.period()).toString();
+                    keys.add(new Object[] { pid, key });
+                    if (random.nextInt(5) == 0) {
+                        keys.add(new Object[] { pid, key });
+                    }
+                }
+                jdbcTemplate.batchUpdate("insert into challenge_participant_completed (participant_id, completed_date)"
+                        + " values (?, ?)", keys);
+            }
+        }
+    }
+
+    @Test
+    void groupedQueryMatchesInMemoryCount() {
+        for (int c = 0; c < WINDOWS.size(); c++) {
+            Window w = WINDOWS.get(c);
+            long cid = c + 1;
+            long from = PeriodCalendar.index(w.from(), w.period());
+            long to = PeriodCalendar.index(w.to(), w.period());
+
+            Map<Long, Long> grouped = new HashMap<>();
+            for (CompletionCountRow r : challengeRepository.countCompletionsByChallengeId(cid,
+                    PeriodCalendar.start(from, w.period()).toString(), PeriodCalendar.start(to, w.period()).toString())) {
+                grouped.put(r.ownerId(), r.completed());
+            }
+
+            for (int p = 0; p < PARTICIPANTS; p++) {
+                long pid = cid * 100 + p;
+                List<String> keys = jdbcTemplate.queryForList(
+                        "select completed_date from challenge_participant_completed where participant_id = ?",
+                        String.class, pid);
+                assertEquals(PeriodCalendar.countCompleted(keys, w.period(), from, to),
+                        grouped.getOrDefault(pid, 0L), w + " participant " + pid);
+            }
+        }
+    }
+
+    private static int periodDays(String period) {
+        return switch (period) {
+            case "weekly" -> 7;
+            case "monthly" -> 28;
+            default -> 1;
+        };
+    }
+}
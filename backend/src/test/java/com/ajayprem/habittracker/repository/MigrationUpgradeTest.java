@@ -0,0 +1,130 @@
+package com.ajayprem.habittracker.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.ajayprem.habittracker.dto.TaskDto;
+import com.ajayprem.habittracker.service.TaskService;
+
+/**
+ * Starts the app on a database in the state the last release left it: the V1
+ * schema with no migration history, and dates stored the way that release
+ * wrote them. Flyway has to baseline it at 1, the later scripts have to type
+ * the existing rows, and Hibernate's validate has to accept the result.
+ *
+ * Uses the same local Postgres server as QueryPlanTest (-Dquery-plans.url,
+ * .username, .password) in a database of its own, and is skipped if the
+ * server cannot be reached.
+ */
+@SpringBootTest(properties = {
+        "app.invalidation.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@EnabledIf("serverAvailable")
+class MigrationUpgradeTest {
+
+    private static final String ADMIN_URL = System.getProperty("query-plans.url",
+            "jdbc:postgresql://localhost:5433/postgres");
+    private static final String USERNAME = System.getProperty("query-plans.username", "postgres");
+    private static final String PASSWORD = System.getProperty("query-plans.password", "postgres");
+    private static final String DATABASE = "habittracker_migration_upgrade";
+
+    private static final long SIGNED_UP = 1718000000123L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskService taskService;
+
+    static boolean serverAvailable() {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD)) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Builds the released database before the context, and with it Flyway, starts. */
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD);
+                Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + DATABASE + " with (force)");
+            st.execute("create database " + DATABASE);
+        }
+        String url = ADMIN_URL.substring(0, ADMIN_URL.lastIndexOf('/') + 1) + DATABASE;
+        try (Connection c = DriverManager.getConnection(url, USERNAME, PASSWORD);
+                Statement st = c.createStatement()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/migration/V1__baseline_schema.sql"));
+            st.execute("insert into app_user (name, email, password, created_at) values"
+                    + " ('a', 'a@example.com', 'x', '" + SIGNED_UP + "'),"
+                    + " ('b', 'b@example.com', 'x', '" + SIGNED_UP + "')");
+            st.execute("insert into user_friends (user_id, friend_id) values (1, 2), (2, 1)");
+            st.execute("insert into task (user_id, title, period, penalty_amount, status, created_at,"
+                    + " start_date, end_date) values"
+                    + " (1, 'daily', 'daily', 1, 'active', '2024-06-10T08:00:00Z', '2024-06-10', '2024-07-10'),"
+                    + " (1, 'old', 'weekly', 1, 'active', 'garbage', '2024-06-10T00:00:00Z', '')");
+            st.execute("insert into task_completed_dates (task_id, completed_date) values"
+                    + " (1, '2024-06-10'), (1, '2024-06-11')");
+            st.execute("insert into challenge (creator_id, title, period, penalty_amount, status, created_at,"
+                    + " start_date, end_date, next_due_date) values"
+                    + " (1, 'c', 'daily', 2, 'active', '2024-06-10T08:00:00Z', '2024-06-10', '2024-07-10', '2024-06-11')");
+            st.execute("insert into penalty (amount, type, reason, from_user_id, to_user_id, task_id, period_key,"
+                    + " created_at) values (1, 'task', 'missed', 1, 2, 1, '2024-06-12', '2024-06-13T00:05:00Z')");
+        }
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> USERNAME);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    @Test
+    void baselinesAtOneAndAppliesTheLaterScripts() {
+        List<String> history = jdbcTemplate.queryForList(
+                "select version || ' ' || type from flyway_schema_history order by installed_rank", String.class);
+        assertEquals(List.of("1 BASELINE", "2 SQL", "3 SQL", "4 SQL", "5 SQL"), history);
+    }
+
+    @Test
+    void existingRowsAreTyped() {
+        assertEquals(Instant.ofEpochMilli(SIGNED_UP), jdbcTemplate.queryForObject(
+                "select created_at from app_user where id = 1", OffsetDateTime.class).toInstant());
+        assertEquals(LocalDate.of(2024, 6, 10), jdbcTemplate.queryForObject(
+                "select start_date from task where id = 2", LocalDate.class));
+        assertNull(jdbcTemplate.queryForObject("select created_at from task where id = 2", OffsetDateTime.class));
+        assertNull(jdbcTemplate.queryForObject("select end_date from task where id = 2", LocalDate.class));
+        assertEquals(LocalDate.of(2024, 6, 11), jdbcTemplate.queryForObject(
+                "select next_due_date from challenge where id = 1", LocalDate.class));
+        assertEquals(Instant.parse("2024-06-13T00:05:00Z"), jdbcTemplate.queryForObject(
+                "select created_at from penalty where id = 1", OffsetDateTime.class).toInstant());
+    }
+
+    @Test
+    void existingRowsReadThroughTheApp() {
+        TaskDto daily = taskService.getTasks(1L).stream()
+                .filter(t -> "daily".equals(t.getTitle()))
+                .findFirst().orElseThrow();
+        assertEquals(2, daily.getCompletedDates().size());
+        assertEquals(0L, jdbcTemplate.queryForObject("select count(*) from change_log", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("select count(*) from resource_version", Long.class));
+    }
+}
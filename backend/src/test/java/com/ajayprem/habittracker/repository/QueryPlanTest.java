@@ -0,0 +1,470 @@
+package com.ajayprem.habittracker.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ajayprem.habittracker.model.FriendRequestKey;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs every repository query against a seeded Postgres and fails if its plan
+ * reads one of the large tables with a sequential scan.
+ *
+ * Each query runs through its repository method, so the SQL checked is exactly
+ * what Hibernate generates. Statements are captured with their bound
+ * parameters and then explained with the same values.
+ *
+ * Needs a local Postgres server. By default this is the one from
+ * application.properties; override it with -Dquery-plans.url, .username and
+ * .password. The test recreates its own database on that server and is skipped
+ * if the server cannot be reached.
+ */
+@SpringBootTest(properties = {
+        "app.invalidation.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("serverAvailable")
+class QueryPlanTest {
+
+    private static final String ADMIN_URL = System.getProperty("query-plans.url",
+            "jdbc:postgresql://localhost:5433/postgres");
+    private static final String USERNAME = System.getProperty("query-plans.username", "postgres");
+    private static final String PASSWORD = System.getProperty("query-plans.password", "postgres");
+    private static final String DATABASE = "habittracker_query_plans";
+
+    /** Tables seeded large enough that a sequential scan of them is a bug. */
+    private static final Set<String> LARGE_TABLES = Set.of("app_user", "auth_token", "user_friends",
+            "friend_request", "task", "task_penalty_recipients", "task_completed_dates", "challenge",
+            "challenge_invited_users", "challenge_participant", "challenge_participant_completed", "penalty",
+            "change_log", "daily_rollup", "resource_version");
+
+    private static final long UID = 4242;
+
+    private static final ThreadLocal<List<Captured>> capture = new ThreadLocal<>();
+
+    private record Captured(String sql, List<Object[]> binds) {
+    }
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private PenaltyRepository penaltyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    @Autowired
+    private AuthTokenRepository authTokenRepository;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    static boolean serverAvailable() {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD)) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD);
+                Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + DATABASE + " with (force)");
+            st.execute("create database " + DATABASE);
+        }
+        registry.add("spring.datasource.url", () -> ADMIN_URL.substring(0, ADMIN_URL.lastIndexOf('/') + 1) + DATABASE);
+        registry.add("spring.datasource.username", () -> USERNAME);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    /**
+     * Seed a shape close to production: many users with a handful of rows
+     * each, most tasks without a penalty, nearly all challenges finished, few
+     * revoked or expired sessions.
+     */
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                insert into app_user (id, name, email, password, created_at)
+                  select g, 'user ' || g, 'user' || g || '@example.com', 'x', now() - g * interval '1 minute'
+                  from generate_series(1, 20000) g;
+                insert into task (id, user_id, title, period, penalty_amount, status, created_at, start_date, end_date)
+                  select g, 1 + g % 20000, 'task ' || g, (array['daily','weekly','monthly'])[1 + g % 3],
+                         case when g % 20 = 0 then 5 else 0 end, 'active', now(), date '2024-01-01',
+                         case when g % 40 = 0 then null else date '2024-06-30' end
+                  from generate_series(1, 100000) g;
+                insert into task_completed_dates (task_id, completed_date)
+                  select 1 + g % 100000, (date '2024-01-01' + g / 100000)::text from generate_series(1, 300000) g;
+                insert into task_penalty_recipients (task_id, user_id)
+                  select g * 20, 1 + (g * 7) % 20000 from generate_series(1, 5000) g;
+                insert into challenge (id, creator_id, title, period, penalty_amount, status, created_at,
+                                       next_due_date, start_date, end_date)
+                  select g, 1 + g % 20000, 'challenge ' || g, 'daily', 10,
+                         case when g % 50 = 0 then 'active' else 'completed' end, now(), date '2024-02-01',
+                         date '2024-01-01', case when g % 50 = 0 then current_date + 30 else date '2024-03-01' end
+                  from generate_series(1, 20000) g;
+                insert into challenge_invited_users (challenge_id, invited_user_id)
+                  select 1 + g % 20000, 1 + (g * 13) % 20000 from generate_series(1, 40000) g;
+                insert into challenge_participant (id, challenge_id, user_id, status)
+                  select g, 1 + g % 20000, 1 + (g * 13) % 20000, 'accepted' from generate_series(1, 60000) g;
+                insert into challenge_participant_completed (participant_id, completed_date)
+                  select 1 + g % 60000, (date '2024-01-01' + g / 60000)::text from generate_series(1, 120000) g;
+                insert into penalty (id, type, task_id, challenge_id, from_user_id, to_user_id, amount, reason,
+                                     created_at, period_key)
+                  select g, 'task', 1 + g % 100000, case when g % 4 = 0 then 1 + g % 20000 end, 1 + g % 20000,
+                         1 + (g * 7) % 20000, 5, 'missed', now() - g * interval '1 minute',
+                         (date '2024-01-01' + g % 180)::text
+                  from generate_series(1, 200000) g;
+                insert into friend_request (from_user_id, to_user_id, status, created_at)
+                  select 1 + g % 20000, 1 + (g * 17 + 1) % 20000, 'pending', now()::text
+                  from generate_series(1, 40000) g on conflict do nothing;
+                insert into user_friends (user_id, friend_id)
+                  select 1 + g % 20000, 1 + (g * 31 + 3) % 20000 from generate_series(1, 200000) g
+                  on conflict do nothing;
+                insert into auth_token (token, user_id, expires_at, revoked, revoked_at)
+                  select 'tok' || g, 1 + g % 20000, now() + interval '7 days', g % 50 = 0,
+                         case when g % 50 = 0 then now() - g * interval '1 second' end
+                  from generate_series(1, 100000) g;
+                insert into change_log (user_id, resource, entity_id, deleted, created_at)
+                  select 1 + g % 20000, 'task', g, false, now() - (200000 - g) * interval '1 second'
+                  from generate_series(1, 200000) g;
+                insert into daily_rollup (user_id, day, completed, due)
+                  select 1 + g % 20000, date '2024-01-01' + g / 20000, g % 3, 2 from generate_series(0, 199999) g;
+                insert into resource_version (user_id, resource, version)
+                  select u, r, u % 97 from generate_series(1, 20000) u, unnest(array['t','c','f','p']) r;
+                select setval(pg_get_serial_sequence(t, 'id'), 1000000)
+                  from unnest(array['app_user','task','challenge','challenge_participant','penalty']) t;
+                analyze;
+                """);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesUseIndexes() {
+        LocalDate today = LocalDate.now();
+        Instant now = Instant.now();
+        FriendRequestKey key = new FriendRequestKey();
+        key.setFromUserId(UID);
+        key.setToUserId(UID + 1);
+
+        List<DynamicTest> tests = new ArrayList<>();
+        add(tests, "TaskRepository.findRowsByUserId", () -> taskRepository.findRowsByUserId(UID));
+        add(tests, "TaskRepository.findRecipientRowsByUserId", () -> taskRepository.findRecipientRowsByUserId(UID));
+        add(tests, "TaskRepository.findCompletionRowsByUserId", () -> taskRepository.findCompletionRowsByUserId(UID));
+        add(tests, "TaskRepository.findPenaltyCandidates",
+                () -> taskRepository.findPenaltyCandidates(today.minusMonths(1).withDayOfMonth(1), today.minusDays(1)));
+        add(tests, "ChallengeRepository.findVisibleIds", () -> challengeRepository.findVisibleIds(UID));
+        add(tests, "ChallengeRepository.findRowsByIds",
+                () -> challengeRepository.findRowsByIds(challengeRepository.findVisibleIds(UID)));
+        add(tests, "ChallengeRepository.findParticipantRowsByIds",
+                () -> challengeRepository.findParticipantRowsByIds(challengeRepository.findVisibleIds(UID)));
+        add(tests, "ChallengeRepository.findCompletionRowsByIds",
+                () -> challengeRepository.findCompletionRowsByIds(challengeRepository.findVisibleIds(UID)));
+        add(tests, "ChallengeRepository.findInviteRowsByIds",
+                () -> challengeRepository.findInviteRowsByIds(challengeRepository.findVisibleIds(UID)));
+        add(tests, "ChallengeRepository.countCompletionsByChallengeId",
+                () -> challengeRepository.countCompletionsByChallengeId(UID, "2024-01-01", "2024-03-01"));
+        add(tests, "ChallengeRepository.findEndedActiveWithPenalty",
+                () -> challengeRepository.findEndedActiveWithPenalty(today));
+        add(tests, "PenaltyRepository.findRowsByUserId", () -> penaltyRepository.findRowsByUserId(UID));
+        add(tests, "PenaltyRepository.existsByTaskIdAndPeriodKey",
+                () -> penaltyRepository.existsByTaskIdAndPeriodKey(UID, "2024-01-05"));
+        add(tests, "PenaltyRepository.existsByTaskIdAndPeriodKeyAndToUserId",
+                () -> penaltyRepository.existsByTaskIdAndPeriodKeyAndToUserId(UID, "2024-01-05", UID));
+        add(tests, "PenaltyRepository.findByTaskIdAndPeriodKey",
+                () -> penaltyRepository.findByTaskIdAndPeriodKey(UID, "2024-01-05"));
+        add(tests, "PenaltyRepository.findByTaskId", () -> penaltyRepository.findByTaskId(UID));
+        add(tests, "PenaltyRepository.findByChallengeIdAndFromUserId",
+                () -> penaltyRepository.findByChallengeIdAndFromUserId(UID, UID));
+        add(tests, "PenaltyRepository.findByFromUserIdAndToUserId",
+                () -> penaltyRepository.findByFromUserIdAndToUserId(UID, UID + 1));
+        add(tests, "UserRepository.findByEmail", () -> userRepository.findByEmail("user" + UID + "@example.com"));
+        add(tests, "UserRepository.findSummariesByIds", () -> userRepository.findSummariesByIds(List.of(UID, UID + 1)));
+        add(tests, "UserRepository.updatePassword", () -> userRepository.updatePassword(UID, "y"));
+        add(tests, "FriendshipRepository.insertEdge", () -> friendshipRepository.insertEdge(UID, UID + 2));
+        add(tests, "FriendshipRepository.deleteEdge", () -> friendshipRepository.deleteEdge(UID, UID + 2));
+        add(tests, "FriendshipRepository.findFriendIds", () -> friendshipRepository.findFriendIds(UID));
+        add(tests, "FriendshipRepository.findFriendSummaries", () -> friendshipRepository.findFriendSummaries(UID));
+        add(tests, "FriendRequestRepository.findById", () -> friendRequestRepository.findById(key));
+        add(tests, "FriendRequestRepository.findIncomingRows", () -> friendRequestRepository.findIncomingRows(UID));
+        add(tests, "FriendRequestRepository.findSentRows", () -> friendRequestRepository.findSentRows(UID));
+        add(tests, "FriendRequestRepository.findToUserIdsByFromUserId",
+                () -> friendRequestRepository.findToUserIdsByFromUserId(UID));
+        add(tests, "FriendRequestRepository.findFromUserIdsByToUserId",
+                () -> friendRequestRepository.findFromUserIdsByToUserId(UID));
+        add(tests, "AuthTokenRepository.findRevokedUnexpired", () -> authTokenRepository.findRevokedUnexpired(now));
+        add(tests, "AuthTokenRepository.findRevokedSince",
+                () -> authTokenRepository.findRevokedSince(now.minusSeconds(60), now));
+        add(tests, "AuthTokenRepository.findActiveByUserId", () -> authTokenRepository.findActiveByUserId(UID, now));
+        add(tests, "AuthTokenRepository.revoke", () -> authTokenRepository.revoke("tok" + UID, UID, now));
+        add(tests, "AuthTokenRepository.revokeAllForUser", () -> authTokenRepository.revokeAllForUser(UID, now));
+        add(tests, "AuthTokenRepository.deleteExpired", () -> authTokenRepository.deleteExpired(now));
+        add(tests, "ChangeLogRepository.findByUserIdAndIdGreaterThanOrderByIdAsc",
+                () -> changeLogRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(UID, 100000L, Limit.of(500)));
+        add(tests, "ChangeLogRepository.findFirstByUserIdAndCreatedAtLessThanEqualOrderByIdDesc",
+                () -> changeLogRepository.findFirstByUserIdAndCreatedAtLessThanEqualOrderByIdDesc(UID,
+                        now.minusSeconds(5)));
+        add(tests, "ChangeLogRepository.findMinId", () -> changeLogRepository.findMinId());
+        add(tests, "ChangeLogRepository.deleteOlderThan",
+                () -> changeLogRepository.deleteOlderThan(now.minusSeconds(30L * 24 * 3600)));
+        add(tests, "DailyRollupRepository.findRange",
+                () -> dailyRollupRepository.findRange(UID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        add(tests, "DailyRollupRepository.addCompleted",
+                () -> dailyRollupRepository.addCompleted(UID, LocalDate.of(2024, 1, 5), 1));
+        add(tests, "ResourceVersionRepository.findByUserId", () -> resourceVersionRepository.findByUserId(UID));
+        add(tests, "ResourceVersionRepository.increment", () -> resourceVersionRepository.increment(UID, "t"));
+
+        // the reactive read path runs these through R2DBC; the planner sees the same SQL either way
+        addSql(tests, "TaskReadRepository.TASKS", TaskReadRepository.TASKS);
+        addSql(tests, "TaskReadRepository.RECIPIENTS", TaskReadRepository.RECIPIENTS);
+        addSql(tests, "TaskReadRepository.COMPLETED", TaskReadRepository.COMPLETED);
+        addSql(tests, "ChallengeReadRepository.CHALLENGES", ChallengeReadRepository.CHALLENGES);
+        addSql(tests, "ChallengeReadRepository.INVITED", ChallengeReadRepository.INVITED);
+        addSql(tests, "ChallengeReadRepository.PARTICIPANTS", ChallengeReadRepository.PARTICIPANTS);
+        addSql(tests, "ChallengeReadRepository.COMPLETED", ChallengeReadRepository.COMPLETED);
+        addSql(tests, "PenaltyReadRepository.PENALTIES", PenaltyReadRepository.PENALTIES);
+
+        // findAll, findAllSummaries and findAllEdges read whole tables on purpose (startup loads), as does
+        // DailyRollupRepository.refreshDue (the scheduled recount); they are not checked
+        return tests.stream();
+    }
+
+    private void add(List<DynamicTest> tests, String name, Runnable query) {
+        tests.add(DynamicTest.dynamicTest(name, () -> inRolledBackTransaction(() -> {
+            List<Captured> statements = new ArrayList<>();
+            capture.set(statements);
+            try {
+                query.run();
+            } finally {
+                capture.remove();
+            }
+            assertFalse(statements.isEmpty(), name + " issued no SQL");
+            for (Captured s : statements) {
+                assertNoLargeSeqScan(name, s.sql(), s.binds());
+            }
+        })));
+    }
+
+    private void addSql(List<DynamicTest> tests, String name, String namedSql) {
+        String sql = namedSql.replace(":uid", "?");
+        List<Object[]> binds = new ArrayList<>();
+        for (int i = 1, n = sql.split("\\?", -1).length - 1; i <= n; i++) {
+            binds.add(new Object[] { "setLong", i, UID });
+        }
+        tests.add(DynamicTest.dynamicTest(name, () -> inRolledBackTransaction(
+                () -> assertNoLargeSeqScan(name, sql, binds))));
+    }
+
+    private void inRolledBackTransaction(Runnable body) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            body.run();
+        });
+    }
+
+    private void assertNoLargeSeqScan(String name, String sql, List<Object[]> binds) {
+        JsonNode plan = jdbcTemplate.execute((ConnectionCallback<JsonNode>) c -> {
+            try (PreparedStatement ps = c.prepareStatement("explain (format json) " + sql)) {
+                for (Object[] b : binds) {
+                    replay(ps, b);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return mapper.readTree(rs.getString(1)).get(0).get("Plan");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        List<String> scans = new ArrayList<>();
+        collectSeqScans(plan, scans);
+        assertTrue(scans.isEmpty(), name + " scans " + scans + " sequentially:\n" + sql + "\n" + plan.toPrettyString());
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> out) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())
+                && LARGE_TABLES.contains(node.path("Relation Name").asText())) {
+            out.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, out);
+        }
+    }
+
+    private static void replay(PreparedStatement ps, Object[] bind) throws SQLException {
+        String method = (String) bind[0];
+        Object[] args = new Object[bind.length - 1];
+        System.arraycopy(bind, 1, args, 0, args.length);
+        for (Method m : PreparedStatement.class.getMethods()) {
+            if (m.getName().equals(method) && m.getParameterCount() == args.length && accepts(m, args)) {
+                try {
+                    m.invoke(ps, args);
+                    return;
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new SQLException("replay " + method, e);
+                }
+            }
+        }
+        throw new SQLException("no PreparedStatement." + method + " for " + args.length + " args");
+    }
+
+    private static boolean accepts(Method m, Object[] args) {
+        Class<?>[] types = m.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            Class<?> t = types[i].isPrimitive() ? boxed(types[i]) : types[i];
+            if (args[i] != null && !t.isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> boxed(Class<?> primitive) {
+        return switch (primitive.getName()) {
+            case "int" -> Integer.class;
+            case "long" -> Long.class;
+            case "boolean" -> Boolean.class;
+            case "double" -> Double.class;
+            case "float" -> Float.class;
+            case "short" -> Short.class;
+            case "byte" -> Byte.class;
+            default -> Character.class;
+        };
+    }
+
+    /**
+     * Wraps the application's DataSource so that, while a query is being
+     * captured on the current thread, every prepared statement it executes is
+     * recorded with the setter calls that bound its parameters.
+     */
+    @TestConfiguration
+    static class CaptureConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource ds) {
+                        return proxy(DataSource.class, ds, (target, m, args) -> {
+                            Object result = m.invoke(target, args);
+                            return result instanceof Connection c ? connection(c) : result;
+                        });
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection connection(Connection c) {
+            return proxy(Connection.class, c, (target, m, args) -> {
+                Object result = m.invoke(target, args);
+                if (result instanceof PreparedStatement ps && m.getName().equals("prepareStatement")
+                        && capture.get() != null) {
+                    return statement(ps, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement statement(PreparedStatement ps, String sql) {
+            List<Object[]> binds = new ArrayList<>();
+            return proxy(PreparedStatement.class, ps, (target, m, args) -> {
+                String name = m.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    Object[] bind = new Object[args.length + 1];
+                    bind[0] = name;
+                    System.arraycopy(args, 0, bind, 1, args.length);
+                    binds.add(bind);
+                } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                    List<Captured> sink = capture.get();
+                    if (sink != null) {
+                        sink.add(new Captured(sql, List.copyOf(binds)));
+                    }
+                }
+                return m.invoke(target, args);
+            });
+        }
+
+        private interface Handler {
+            Object handle(Object target, Method m, Object[] args) throws Throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Handler handler) {
+            InvocationHandler h = (p, m, args) -> {
+                try {
+                    return handler.handle(target, m, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, h);
+        }
+    }
+}
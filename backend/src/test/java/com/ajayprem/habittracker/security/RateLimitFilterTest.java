@@ -0,0 +1,136 @@
+package com.ajayprem.habittracker.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.ajayprem.habittracker.security.RateLimitFilter.Group;
+
+class RateLimitFilterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long T0 = 1_000 * SECOND;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // three tokens, one more per second
+        filter = new RateLimitFilter(new MockEnvironment()
+                .withProperty("app.ratelimit.check-in.capacity", "3")
+                .withProperty("app.ratelimit.check-in.per-second", "1"));
+    }
+
+    @Test
+    void admitsABurstOfCapacityThenWaitsOneInterval() {
+        assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0));
+        assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0));
+        assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0));
+        assertEquals(SECOND, filter.acquire(1, Group.CHECK_IN, T0));
+        assertEquals(SECOND / 2, filter.acquire(1, Group.CHECK_IN, T0 + SECOND / 2));
+        assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0 + SECOND));
+        assertEquals(SECOND, filter.acquire(1, Group.CHECK_IN, T0 + SECOND));
+    }
+
+    @Test
+    void rejectedRequestsDoNotTakeATokenOrPushBackTheRefill() {
+        for (int i = 0; i < 3; i++) {
+            filter.acquire(1, Group.CHECK_IN, T0);
+        }
+        for (int i = 0; i < 100; i++) {
+            filter.acquire(1, Group.CHECK_IN, T0 + i);
+        }
+        assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0 + SECOND));
+    }
+
+    @Test
+    void sustainsTheConfiguredRate() {
+        for (int i = 0; i < 3; i++) {
+            filter.acquire(1, Group.CHECK_IN, T0);
+        }
+        for (int s = 1; s <= 50; s++) {
+            assertEquals(0, filter.acquire(1, Group.CHECK_IN, T0 + s * SECOND), "second " + s);
+            assertEquals(SECOND, filter.acquire(1, Group.CHECK_IN, T0 + s * SECOND), "second " + s);
+        }
+    }
+
+    @Test
+    void idleTimeRefillsOnlyUpToCapacity() {
+        filter.acquire(1, Group.CHECK_IN, T0);
+        long later = T0 + 3_600 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, filter.acquire(1, Group.CHECK_IN, later));
+        }
+        assertEquals(SECOND, filter.acquire(1, Group.CHECK_IN, later));
+    }
+
+    @Test
+    void bucketsArePerUserAndGroup() {
+        for (int i = 0; i < 3; i++) {
+            filter.acquire(1, Group.CHECK_IN, T0);
+        }
+        assertEquals(SECOND, filter.acquire(1, Group.CHECK_IN, T0));
+        assertEquals(0, filter.acquire(2, Group.CHECK_IN, T0));
+        assertEquals(0, filter.acquire(1, Group.SEARCH, T0));
+    }
+
+    @Test
+    void concurrentCallersShareTheBurst() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    int admitted = 0;
+                    for (int i = 0; i < 1_000; i++) {
+                        if (filter.acquire(1, Group.CHECK_IN, T0) == 0) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            start.countDown();
+            int admitted = 0;
+            for (Future<Integer> f : futures) {
+                admitted += f.get();
+            }
+            assertEquals(3, admitted);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void groupsCoverOnlyTheLimitedRoutes() {
+        assertEquals(Group.PENALTIES, RateLimitFilter.groupOf(new MockHttpServletRequest("DELETE", "/api/penalties/5")));
+        assertEquals(Group.PENALTIES, RateLimitFilter.groupOf(new MockHttpServletRequest("POST", "/api/tasks/1/penalty")));
+        assertEquals(Group.PENALTIES,
+                RateLimitFilter.groupOf(new MockHttpServletRequest("POST", "/api/challenges/1/penalty")));
+        assertNull(RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/penalties")));
+        assertNull(RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/reactive/penalties")));
+
+        assertEquals(Group.CHECK_IN,
+                RateLimitFilter.groupOf(new MockHttpServletRequest("POST", "/api/tasks/1/complete-for-date")));
+        assertEquals(Group.CHECK_IN,
+                RateLimitFilter.groupOf(new MockHttpServletRequest("POST", "/api/challenges/1/uncomplete")));
+        assertNull(RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/tasks")));
+
+        assertEquals(Group.SEARCH, RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/friends/search")));
+    }
+}
@@ -0,0 +1,195 @@
+package com.ajayprem.habittracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Pins the number of SQL statements behind each list endpoint, so a lazy
+ * association touched while building the response (an N+1) fails here rather
+ * than in production.
+ *
+ * The seeded user has several tasks, challenges, penalties and friend requests,
+ * each with a few children, so a per-row query would show up as a higher
+ * count. Uses the same local Postgres server as QueryPlanTest
+ * (-Dquery-plans.url, .username, .password) in a database of its own, and is
+ * skipped if the server cannot be reached.
+ */
+@SpringBootTest(properties = {
+        "app.invalidation.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("serverAvailable")
+class QueryCountTest {
+
+    private static final String ADMIN_URL = System.getProperty("query-plans.url",
+            "jdbc:postgresql://localhost:5433/postgres");
+    private static final String USERNAME = System.getProperty("query-plans.username", "postgres");
+    private static final String PASSWORD = System.getProperty("query-plans.password", "postgres");
+    private static final String DATABASE = "habittracker_query_counts";
+
+    private static final long UID = 1;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    @Autowired
+    private PenaltyService penaltyService;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    static boolean serverAvailable() {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD)) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection c = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD);
+                Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + DATABASE + " with (force)");
+            st.execute("create database " + DATABASE);
+        }
+        registry.add("spring.datasource.url", () -> ADMIN_URL.substring(0, ADMIN_URL.lastIndexOf('/') + 1) + DATABASE);
+        registry.add("spring.datasource.username", () -> USERNAME);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    /**
+     * User 1 owns four tasks with two penalty recipients and three completions
+     * each, created three challenges and was invited to a fourth (four
+     * invitees and participants each, all with completions), has penalties both ways with
+     * four other users and three friend requests in each direction.
+     */
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                insert into app_user (id, name, email, password, created_at)
+                  select g, 'user ' || g, 'user' || g || '@example.com', 'x', now() from generate_series(1, 8) g;
+                insert into task (id, user_id, title, period, penalty_amount, status, created_at, start_date, end_date)
+                  select g, 1, 'task ' || g, 'daily', 5, 'active', now(), current_date - 10, null
+                  from generate_series(1, 4) g;
+                insert into task_penalty_recipients (task_id, user_id)
+                  select t, 2 + (t + r) % 4 from generate_series(1, 4) t, generate_series(0, 1) r;
+                insert into task_completed_dates (task_id, completed_date)
+                  select t, (current_date - d)::text from generate_series(1, 4) t, generate_series(1, 3) d;
+                insert into challenge (id, creator_id, title, period, penalty_amount, status, created_at,
+                                       next_due_date, start_date, end_date)
+                  select g, case when g = 4 then 2 else 1 end, 'challenge ' || g, 'daily', 10, 'active', now(),
+                         current_date, current_date - 10, current_date + 10
+                  from generate_series(1, 4) g;
+                insert into challenge_invited_users (challenge_id, invited_user_id)
+                  select c, u from generate_series(1, 4) c, generate_series(1, 4) u
+                  where u <> case when c = 4 then 2 else 1 end;
+                insert into challenge_participant (id, challenge_id, user_id, status)
+                  select (c - 1) * 4 + u, c, u, 'accepted' from generate_series(1, 4) c, generate_series(1, 4) u;
+                insert into challenge_participant_completed (participant_id, completed_date)
+                  select p, (current_date - d)::text from generate_series(1, 16) p, generate_series(1, 2) d;
+                insert into penalty (id, type, task_id, challenge_id, from_user_id, to_user_id, amount, reason,
+                                     created_at, period_key)
+                  select g, 'task', 1 + g % 4, null, case when g % 2 = 0 then 1 else 2 + g % 4 end,
+                         case when g % 2 = 0 then 2 + g % 4 else 1 end, 5, 'missed', now(),
+                         (current_date - g)::text
+                  from generate_series(1, 8) g;
+                insert into friend_request (from_user_id, to_user_id, status, created_at)
+                  select g, 1, 'pending', now()::text from generate_series(2, 4) g;
+                insert into friend_request (from_user_id, to_user_id, status, created_at)
+                  select 1, g, 'pending', now()::text from generate_series(5, 7) g;
+                select setval(pg_get_serial_sequence(t, 'id'), 1000)
+                  from unnest(array['app_user','task','challenge','challenge_participant','penalty']) t;
+                """);
+    }
+
+    @Test
+    void tasks() {
+        assertEquals(3, statements(() -> taskService.getTasks(UID), 4), "GET /api/tasks");
+    }
+
+    @Test
+    void challenges() {
+        // visible ids, challenges, participants, participant completions, invites
+        assertEquals(5, statements(() -> challengeService.getChallenges(UID), 4), "GET /api/challenges");
+    }
+
+    @Test
+    void penaltySummary() {
+        assertEquals(1, statements(() -> penaltyService.getPenaltySummary(UID).getPenalties(), 8),
+                "GET /api/penalties");
+    }
+
+    @Test
+    void friendRequests() {
+        assertEquals(1, statements(() -> friendService.getFriendRequests(UID), 3), "GET /api/friends/requests");
+    }
+
+    @Test
+    void sentFriendRequests() {
+        assertEquals(1, statements(() -> friendService.getSentFriendRequests(UID), 3),
+                "GET /api/friends/sent-requests");
+    }
+
+    @Test
+    void heatmap() {
+        // every seeded task and challenge is daily and running, so the user has eight items due today
+        LocalDate today = LocalDate.now();
+        assertTrue(taskService.completeTaskForDate(UID, "1", today.toString()));
+        statsService.refreshDue();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().clear();
+        byte[] days = statsService.getHeatmap(UID, today.getYear());
+        assertEquals(1, sessionFactory.getStatistics().getPrepareStatementCount(), "GET /api/stats/heatmap");
+        assertEquals(StatsService.HEATMAP_DAYS * StatsService.HEATMAP_DAY_BYTES, days.length);
+        int at = (today.getDayOfYear() - 1) * StatsService.HEATMAP_DAY_BYTES;
+        assertEquals(1, days[at], "completed today");
+        assertEquals(8, days[at + 1], "due today");
+    }
+
+    /** Statements prepared while the call runs, with the second-level cache emptied first. */
+    private long statements(Supplier<? extends Collection<?>> call, int expectedSize) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics stats = sessionFactory.getStatistics();
+        stats.clear();
+        assertEquals(expectedSize, call.get().size(), "rows returned");
+        return stats.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ajayprem.habittracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ajayprem.habittracker.repository.UserRepository;
+import com.ajayprem.habittracker.repository.UserSummary;
+
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSearchIndex();
+        userRepository = mock(UserRepository.class);
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        index.add(1L, "Alice Smith", "alice@example.com");
+        index.add(2L, "Bob Allen", "bob@example.com");
+        index.add(3L, "Sal", "sal@example.com");
+        index.add(4L, "Al", "al@work.org");
+        index.add(5L, "Malice", "m@example.com");
+    }
+
+    @Test
+    void ranksExactThenPrefixThenTokenThenSubstring() {
+        assertEquals(List.of(4L, 1L, 2L), ids(index.search("al", 10, null)));
+        index.add(6L, "Ali", "x@example.com");
+        index.add(7L, "Bob Alison", "bob2@example.com");
+        // exact name, name prefix, token prefix ("alison"), substring ("malice")
+        assertEquals(List.of(6L, 1L, 7L, 5L), ids(index.search("ali", 10, null)));
+        assertEquals(List.of(1L, 5L), ids(index.search("alice", 10, null)));
+        assertEquals(List.of(1L), ids(index.search("alice@example.com", 10, null)));
+    }
+
+    @Test
+    void shortQueriesMatchOnlyTokenPrefixes() {
+        // "sal" and "malice" contain "al" but no token of either starts with it
+        assertFalse(ids(index.search("al", 10, null)).contains(3L));
+        assertFalse(ids(index.search("al", 10, null)).contains(5L));
+        assertTrue(ids(index.search("sal", 10, null)).contains(3L));
+        assertEquals(List.of(2L), ids(index.search("b", 10, null)));
+    }
+
+    @Test
+    void queriesAreTrimmedAndCaseInsensitive() {
+        assertEquals(ids(index.search("smith", 10, null)), ids(index.search("  SMITH ", 10, null)));
+        assertEquals(List.of(), index.search("   ", 10, null));
+        assertEquals(List.of(), index.search(null, 10, null));
+        assertEquals(List.of(), index.search("zzz", 10, null));
+    }
+
+    @Test
+    void limitAndExclude() {
+        assertEquals(List.of(4L, 1L), ids(index.search("al", 2, null)));
+        assertEquals(List.of(1L, 2L), ids(index.search("al", 2, id -> id == 4)));
+        assertEquals(List.of(), index.search("al", 0, null));
+    }
+
+    @Test
+    void addReplacesAnEarlierEntry() {
+        index.add(1L, "Carol", "carol@example.com");
+        assertEquals(5, index.size());
+        assertEquals(List.of(), ids(index.search("smith", 10, null)));
+        assertEquals(List.of(1L), ids(index.search("carol", 10, null)));
+    }
+
+    @Test
+    void rebuildReplacesTheIndexAndKeepsConcurrentAdds() {
+        when(userRepository.findAllSummaries()).thenAnswer(invocation -> {
+            // a signup that lands between the read and the swap
+            index.add(7L, "Dave", "dave@example.com");
+            return List.of(summary(1L, "Alice Smith", "alice@example.com"), summary(6L, "Erin", "erin@example.com"));
+        });
+        assertEquals(3, index.rebuild());
+        assertEquals(List.of(1L), ids(index.search("alice", 10, null)));
+        assertEquals(List.of(6L), ids(index.search("erin", 10, null)));
+        assertEquals(List.of(7L), ids(index.search("dave", 10, null)));
+        assertEquals(List.of(), ids(index.search("bob", 10, null)));
+    }
+
+    private static List<Long> ids(List<UserSearchIndex.Entry> entries) {
+        return entries.stream().map(UserSearchIndex.Entry::id).toList();
+    }
+
+    private static UserSummary summary(long id, String name, String email) {
+        return new UserSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.ajayprem.habittracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReturnsAFalseNegative() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String jti = UUID.randomUUID().toString();
+            filter.add(jti);
+            added.add(jti);
+        }
+        for (String jti : added) {
+            assertTrue(filter.mightContain(jti), jti);
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearTheTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("revoked-" + i);
+        }
+        int positives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("live-" + i)) {
+                positives++;
+            }
+        }
+        double rate = (double) positives / probes;
+        assertTrue(rate < 0.02, "false positive rate " + rate);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+        assertEquals(64, filter.bitSize());
+        assertFalse(filter.mightContain(""));
+        assertFalse(filter.mightContain("a"));
+        filter.add("");
+        assertTrue(filter.mightContain(""));
+    }
+
+    @Test
+    void sizedInWholeWords() {
+        // m = -n ln p / (ln 2)^2 = 9585.06 bits for n = 1000, p = 0.01, rounded up to 150 words
+        assertEquals(9600, new BloomFilter(1000, 0.01).bitSize());
+    }
+
+    @Test
+    void concurrentAddsAreAllVisible() throws Exception {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        filter.add(thread + ":" + i);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain(t + ":" + i), t + ":" + i);
+            }
+        }
+    }
+}
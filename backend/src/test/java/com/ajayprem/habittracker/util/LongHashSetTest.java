@@ -0,0 +1,91 @@
+package com.ajayprem.habittracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LongHashSetTest {
+
+    @Test
+    void addContainsRemove() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.add(-7));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(42));
+        assertTrue(set.contains(-7));
+        assertFalse(set.contains(43));
+        assertTrue(set.remove(42));
+        assertFalse(set.remove(42));
+        assertFalse(set.contains(42));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void zeroIsNotAKey() {
+        LongHashSet set = new LongHashSet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        LongHashSet set = new LongHashSet(2);
+        for (long i = 1; i <= 10_000; i++) {
+            assertTrue(set.add(i));
+        }
+        assertEquals(10_000, set.size());
+        for (long i = 1; i <= 10_000; i++) {
+            assertTrue(set.contains(i), "contains " + i);
+        }
+        assertFalse(set.contains(10_001));
+    }
+
+    @Test
+    void matchesHashSetUnderRandomAddsAndRemoves() {
+        // a small key range keeps probe chains long, so removals shift entries back often
+        Random random = new Random(27);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int n = 0; n < 200_000; n++) {
+            long key = 1 + random.nextInt(512);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+            long probe = 1 + random.nextInt(512);
+            assertEquals(expected.contains(probe), set.contains(probe), "contains " + probe);
+            assertEquals(expected.size(), set.size());
+        }
+        long[] actual = set.toArray();
+        Arrays.sort(actual);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), actual);
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongHashSet set = new LongHashSet();
+        set.add(1);
+        set.add(2);
+        LongHashSet copy = set.copy();
+        set.remove(1);
+        copy.add(3);
+        assertTrue(copy.contains(1));
+        assertFalse(set.contains(3));
+        assertEquals(1, set.size());
+        assertEquals(3, copy.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ajayprem.habittracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        assertEquals(0.0, cache.hitRatio());
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0.75, cache.hitRatio());
+    }
+
+    @Test
+    void updateIfPresentLeavesMissingKeysAlone() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.put("a", 1);
+        cache.updateIfPresent("a", v -> v + 1);
+        cache.updateIfPresent("b", v -> v + 1);
+        assertEquals(2, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void removeAndClear() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.evictions());
+    }
+}
@@ -0,0 +1,105 @@
+package com.ajayprem.habittracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PeriodCalendarTest {
+
+    private static final LocalDate EPOCH = LocalDate.ofEpochDay(0);
+
+    @Test
+    void weeksAroundTheEpochStartOnMonday() {
+        // 1970-01-01 is a Thursday, in the week that starts on 1969-12-29
+        assertEquals(0, PeriodCalendar.index(LocalDate.of(1969, 12, 29), "weekly"));
+        assertEquals(0, PeriodCalendar.index(EPOCH, "weekly"));
+        assertEquals(0, PeriodCalendar.index(LocalDate.of(1970, 1, 4), "weekly"));
+        assertEquals(1, PeriodCalendar.index(LocalDate.of(1970, 1, 5), "weekly"));
+        assertEquals(-1, PeriodCalendar.index(LocalDate.of(1969, 12, 28), "weekly"));
+        assertEquals(-1, PeriodCalendar.index(LocalDate.of(1969, 12, 22), "weekly"));
+        assertEquals(-2, PeriodCalendar.index(LocalDate.of(1969, 12, 21), "weekly"));
+
+        assertEquals(LocalDate.of(1969, 12, 29), PeriodCalendar.start(0, "weekly"));
+        assertEquals(LocalDate.of(1969, 12, 22), PeriodCalendar.start(-1, "weekly"));
+        assertEquals(LocalDate.of(1970, 1, 5), PeriodCalendar.start(1, "weekly"));
+    }
+
+    @Test
+    void startOfIndexIsThePeriodKey() {
+        // every day of 1968-1971, around the epoch, and of 2023-2026, across a leap year
+        for (LocalDate first : List.of(LocalDate.of(1968, 1, 1), LocalDate.of(2023, 1, 1))) {
+            for (LocalDate d = first; d.isBefore(first.plusYears(4)); d = d.plusDays(1)) {
+                for (String period : List.of("daily", "weekly", "monthly")) {
+                    assertEquals(DateUtils.periodKeyFor(d, period),
+                            PeriodCalendar.start(PeriodCalendar.index(d, period), period), period + " " + d);
+                }
+            }
+        }
+    }
+
+    @Test
+    void monthAndYearRollover() {
+        assertEquals(PeriodCalendar.index(LocalDate.of(2024, 12, 31), "monthly") + 1,
+                PeriodCalendar.index(LocalDate.of(2025, 1, 1), "monthly"));
+        assertEquals(LocalDate.of(2025, 1, 1),
+                PeriodCalendar.start(PeriodCalendar.index(LocalDate.of(2025, 1, 20), "monthly"), "monthly"));
+        assertEquals(LocalDate.of(1969, 12, 1),
+                PeriodCalendar.start(PeriodCalendar.index(LocalDate.of(1969, 12, 31), "monthly"), "monthly"));
+        assertEquals(4, PeriodCalendar.periodsThrough(LocalDate.of(2024, 11, 30), LocalDate.of(2025, 2, 1), "monthly"));
+
+        // 2024-12-30 is the Monday of ISO week 1 of 2025
+        assertEquals(PeriodCalendar.index(LocalDate.of(2024, 12, 30), "weekly"),
+                PeriodCalendar.index(LocalDate.of(2025, 1, 5), "weekly"));
+        assertEquals(3, PeriodCalendar.periodsThrough(LocalDate.of(2024, 12, 25), LocalDate.of(2025, 1, 6), "weekly"));
+
+        assertEquals(3, PeriodCalendar.periodsThrough(LocalDate.of(2024, 2, 28), LocalDate.of(2024, 3, 1), "daily"));
+        assertEquals(2, PeriodCalendar.periodsThrough(LocalDate.of(2023, 2, 28), LocalDate.of(2023, 3, 1), "daily"));
+        assertEquals(2, PeriodCalendar.periodsThrough(LocalDate.of(2024, 12, 31), LocalDate.of(2025, 1, 1), "daily"));
+    }
+
+    @Test
+    void startAndEndInsideAPeriod() {
+        LocalDate wednesday = LocalDate.of(2025, 1, 8);
+        LocalDate friday = LocalDate.of(2025, 1, 10);
+        assertEquals(1, PeriodCalendar.periodsThrough(wednesday, friday, "weekly"));
+        assertEquals(0, PeriodCalendar.periodsBefore(wednesday, friday, "weekly"));
+        assertEquals(2, PeriodCalendar.periodsThrough(wednesday, friday.plusWeeks(1), "weekly"));
+        assertEquals(1, PeriodCalendar.periodsBefore(wednesday, friday.plusWeeks(1), "weekly"));
+
+        assertEquals(2, PeriodCalendar.periodsThrough(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 2, 14), "monthly"));
+        assertEquals(1, PeriodCalendar.periodsBefore(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 2, 14), "monthly"));
+
+        assertEquals(0, PeriodCalendar.periodsThrough(friday, wednesday, "daily"));
+        assertEquals(0, PeriodCalendar.periodsBefore(friday, wednesday, "daily"));
+    }
+
+    @Test
+    void countCompletedCountsDistinctPeriodsInRange() {
+        long from = PeriodCalendar.index(LocalDate.of(2025, 1, 6), "weekly");
+        List<String> keys = Arrays.asList("2024-12-30", "2025-01-06", "2025-01-06", "2025-01-13", "2025-01-20",
+                "not a date", null);
+        // the week of 2025-01-20 is the end of the range and not counted
+        assertEquals(2, PeriodCalendar.countCompleted(keys, "weekly", from, from + 2));
+        assertEquals(2, PeriodCalendar.countCompleted(keys, "WEEKLY", from, from + 2));
+        assertEquals(0, PeriodCalendar.countCompleted(null, "weekly", from, from + 2));
+        assertEquals(0, PeriodCalendar.countCompleted(keys, "weekly", from, from));
+    }
+
+    @Test
+    void firstMissing() {
+        long from = PeriodCalendar.index(LocalDate.of(2025, 1, 30), null);
+        List<String> keys = List.of("2025-01-30", "2025-01-31", "2025-02-02");
+        assertEquals("2025-02-01", PeriodCalendar.firstMissing(keys, null, from, from + 4));
+        assertNull(PeriodCalendar.firstMissing(keys, "daily", from, from + 2));
+        assertEquals("2025-01-30", PeriodCalendar.firstMissing(List.of(), "daily", from, from + 2));
+
+        long month = PeriodCalendar.index(LocalDate.of(2024, 11, 1), "monthly");
+        assertEquals("2025-01-01", PeriodCalendar.firstMissing(List.of("2024-11-01", "2024-12-01"), "monthly",
+                month, month + 3));
+    }
+}